@@ -0,0 +1,99 @@
+package com.inventorywizard;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.lang.reflect.Proxy;
+import java.util.Objects;
+
+/**
+ * Lightweight ItemStack stand-in that works without a running server
+ * Item meta (enchantments, names) is modelled by a meta key compared in isSimilar
+ */
+final class BenchItemStack extends ItemStack {
+
+    private final Material type;
+    private final int maxStackSize;
+    private final String metaKey;
+    private int amount;
+
+    BenchItemStack(Material type, int amount, int maxStackSize, String metaKey) {
+        this.type = type;
+        this.amount = amount;
+        this.maxStackSize = maxStackSize;
+        this.metaKey = metaKey;
+    }
+
+    @Override
+    public Material getType() {
+        return type;
+    }
+
+    @Override
+    public int getAmount() {
+        return amount;
+    }
+
+    @Override
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+
+    @Override
+    public int getMaxStackSize() {
+        return maxStackSize;
+    }
+
+    @Override
+    public boolean hasItemMeta() {
+        return metaKey != null;
+    }
+
+    @Override
+    public ItemMeta getItemMeta() {
+        if (metaKey == null) {
+            return null;
+        }
+        // Covers what fingerprinting and the sort keys read: hashCode/equals and the display name
+        return (ItemMeta) Proxy.newProxyInstance(ItemMeta.class.getClassLoader(), new Class<?>[] {ItemMeta.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "hashCode" -> metaKey.hashCode();
+                case "equals" -> proxy == args[0];
+                case "toString" -> "BenchItemMeta[" + metaKey + "]";
+                case "hasDisplayName" -> metaKey.startsWith("name:");
+                case "getDisplayName" -> metaKey.startsWith("name:") ? metaKey.substring(5) : null;
+                default -> method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+            });
+    }
+
+    String getMetaKey() {
+        return metaKey;
+    }
+
+    @Override
+    public boolean isSimilar(ItemStack stack) {
+        if (stack == this) {
+            return true;
+        }
+        if (!(stack instanceof BenchItemStack other)) {
+            return false;
+        }
+        return type == other.type && Objects.equals(metaKey, other.metaKey);
+    }
+
+    @Override
+    public BenchItemStack clone() {
+        return new BenchItemStack(type, amount, maxStackSize, metaKey);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof BenchItemStack other && isSimilar(other) && amount == other.amount;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, metaKey, amount);
+    }
+}
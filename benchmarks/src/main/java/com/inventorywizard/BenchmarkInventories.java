@@ -0,0 +1,79 @@
+package com.inventorywizard;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Random;
+
+/**
+ * Deterministic, realistic inventory fixtures: mixed materials, items with meta
+ * (enchanted gear, named items, potions) and plenty of partial stacks
+ */
+final class BenchmarkInventories {
+
+    private static final Material[] STACKABLES = {
+        Material.STONE, Material.COBBLESTONE, Material.DEEPSLATE, Material.DIRT, Material.SAND,
+        Material.GRAVEL, Material.OAK_LOG, Material.SPRUCE_PLANKS, Material.IRON_INGOT,
+        Material.GOLD_INGOT, Material.REDSTONE, Material.COAL, Material.TORCH, Material.BREAD,
+        Material.COOKED_BEEF, Material.ARROW, Material.OAK_LEAVES, Material.GLASS, Material.WHITE_WOOL,
+        Material.BONE, Material.STRING, Material.GUNPOWDER, Material.ROTTEN_FLESH
+    };
+
+    private static final Material[] SMALL_STACKS = {
+        Material.ENDER_PEARL, Material.EGG, Material.SNOWBALL, Material.OAK_SIGN
+    };
+
+    private static final Material[] UNSTACKABLES = {
+        Material.DIAMOND_SWORD, Material.IRON_PICKAXE, Material.DIAMOND_AXE, Material.BOW,
+        Material.IRON_CHESTPLATE, Material.ENCHANTED_BOOK, Material.POTION, Material.SHIELD,
+        Material.WATER_BUCKET, Material.SHULKER_BOX
+    };
+
+    private static final String[] META_KEYS = {
+        "Sharpness V", "Efficiency IV", "Unbreaking III", "Mending", "Protection IV",
+        "name:Excalibur", "name:Old Faithful", "potion:healing", "potion:swiftness", "potion:night_vision"
+    };
+
+    // Fraction of slots that hold an item
+    private static final double FILL_RATIO = 0.85;
+
+    private BenchmarkInventories() {
+    }
+
+    /**
+     * Install a category table that doesn't need the server's Material registry
+     */
+    static void installCategoryTable() {
+        MaterialCategoryIndex.initialize(
+            material -> 100 * (1 + Math.floorMod(material.name().hashCode(), 12)),
+            material -> 100 * (1 + Math.floorMod(material.name().hashCode(), 5)));
+    }
+
+    static ItemStack[] randomContents(int size, long seed) {
+        Random random = new Random(seed);
+        ItemStack[] contents = new ItemStack[size];
+
+        for (int slot = 0; slot < size; slot++) {
+            if (random.nextDouble() > FILL_RATIO) {
+                continue;
+            }
+
+            int roll = random.nextInt(10);
+            if (roll < 6) {
+                Material material = STACKABLES[random.nextInt(STACKABLES.length)];
+                // Many partial stacks so merging has real work to do
+                int amount = random.nextBoolean() ? 64 : 1 + random.nextInt(63);
+                contents[slot] = new BenchItemStack(material, amount, 64, null);
+            } else if (roll < 7) {
+                Material material = SMALL_STACKS[random.nextInt(SMALL_STACKS.length)];
+                contents[slot] = new BenchItemStack(material, 1 + random.nextInt(16), 16, null);
+            } else {
+                Material material = UNSTACKABLES[random.nextInt(UNSTACKABLES.length)];
+                String metaKey = random.nextInt(3) == 0 ? null : META_KEYS[random.nextInt(META_KEYS.length)];
+                contents[slot] = new BenchItemStack(material, 1, 1, metaKey);
+            }
+        }
+
+        return contents;
+    }
+}
@@ -0,0 +1,131 @@
+package com.inventorywizard;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Proxy-based stand-ins for the Bukkit interfaces the plugin touches
+ * Only the methods used by InventorySorter and H2DatabaseManager are implemented
+ */
+final class BukkitStandIns {
+
+    // Player storage contents are hotbar (0-8) plus main inventory (9-35)
+    private static final int PLAYER_STORAGE_SIZE = 36;
+
+    private BukkitStandIns() {
+    }
+
+    /**
+     * Slot array backing a fake inventory, so fixtures can reset it between invocations
+     */
+    static final class Slots {
+        final ItemStack[] items;
+
+        Slots(int size) {
+            this.items = new ItemStack[size];
+        }
+
+        void load(ItemStack[] source) {
+            System.arraycopy(source, 0, items, 0, items.length);
+        }
+    }
+
+    static Inventory chest(Slots slots) {
+        return (Inventory) Proxy.newProxyInstance(
+            BukkitStandIns.class.getClassLoader(),
+            new Class<?>[] {Inventory.class},
+            (proxy, method, args) -> inventoryCall(proxy, slots, InventoryType.CHEST, method.getName(), args));
+    }
+
+    static Player player(Slots slots) {
+        PlayerInventory inventory = (PlayerInventory) Proxy.newProxyInstance(
+            BukkitStandIns.class.getClassLoader(),
+            new Class<?>[] {PlayerInventory.class},
+            (proxy, method, args) -> inventoryCall(proxy, slots, InventoryType.PLAYER, method.getName(), args));
+        UUID playerId = UUID.randomUUID();
+
+        return (Player) Proxy.newProxyInstance(
+            BukkitStandIns.class.getClassLoader(),
+            new Class<?>[] {Player.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "getInventory" -> inventory;
+                case "getUniqueId" -> playerId;
+                case "getName" -> "BenchPlayer";
+                case "updateInventory" -> null;
+                case "isOnline" -> true;
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "BenchPlayer";
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    static Plugin plugin(File dataFolder) {
+        Logger logger = Logger.getLogger("InventoryWizard-Bench");
+        logger.setLevel(Level.WARNING);
+
+        return (Plugin) Proxy.newProxyInstance(
+            BukkitStandIns.class.getClassLoader(),
+            new Class<?>[] {Plugin.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "getDataFolder" -> dataFolder;
+                case "getLogger" -> logger;
+                case "getName" -> "InventoryWizard";
+                case "isEnabled" -> true;
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "InventoryWizard-Bench";
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static Object inventoryCall(Object proxy, Slots slots, InventoryType type, String name, Object[] args) {
+        ItemStack[] items = slots.items;
+        switch (name) {
+            case "getSize":
+                return items.length;
+            case "getType":
+                return type;
+            case "getItem":
+                return items[(Integer) args[0]];
+            case "setItem":
+                items[(Integer) args[0]] = (ItemStack) args[1];
+                return null;
+            case "getContents":
+                return items.clone();
+            case "setContents":
+                Arrays.fill(items, null);
+                ItemStack[] contents = (ItemStack[]) args[0];
+                System.arraycopy(contents, 0, items, 0, Math.min(contents.length, items.length));
+                return null;
+            case "getStorageContents":
+                return Arrays.copyOf(items, type == InventoryType.PLAYER ? PLAYER_STORAGE_SIZE : items.length);
+            case "setStorageContents":
+                ItemStack[] storage = (ItemStack[]) args[0];
+                System.arraycopy(storage, 0, items, 0, Math.min(storage.length, items.length));
+                return null;
+            case "clear":
+                Arrays.fill(items, null);
+                return null;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "BenchInventory[" + type + "]";
+            default:
+                throw new UnsupportedOperationException(name);
+        }
+    }
+}
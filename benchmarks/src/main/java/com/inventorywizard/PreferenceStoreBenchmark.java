@@ -0,0 +1,107 @@
+package com.inventorywizard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Preference read/write latency against an embedded H2 file database
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreferenceStoreBenchmark {
+
+    @Param({"1000", "100000"})
+    public int storedPlayers;
+
+    // Entries per write-behind flush
+    @Param({"64"})
+    public int batchSize;
+
+    private Path dataFolder;
+    private H2DatabaseManager database;
+    private UUID[] playerIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataFolder = Files.createTempDirectory("iwiz-bench");
+        database = new H2DatabaseManager(BukkitStandIns.plugin(dataFolder.toFile()));
+
+        playerIds = new UUID[storedPlayers];
+        Map<UUID, PlayerSortPreferences.SortMode> batch = new HashMap<>();
+        for (int i = 0; i < storedPlayers; i++) {
+            playerIds[i] = UUID.randomUUID();
+            batch.put(playerIds[i], PlayerSortPreferences.SortMode.fromId(i % 3));
+            if (batch.size() == 1000) {
+                database.setPlayerSortModes(batch);
+                batch.clear();
+            }
+        }
+        database.setPlayerSortModes(batch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        database.close();
+        try (Stream<Path> files = Files.walk(dataFolder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public PlayerSortPreferences.SortMode readExisting() {
+        return database.getPlayerSortMode(randomPlayer());
+    }
+
+    @Benchmark
+    public PlayerSortPreferences.SortMode readMissing() {
+        return database.getPlayerSortMode(UUID.randomUUID());
+    }
+
+    @Benchmark
+    public void writeSingle() {
+        database.setPlayerSortMode(randomPlayer(), randomMode());
+    }
+
+    @Benchmark
+    public void writeBatch() {
+        Map<UUID, PlayerSortPreferences.SortMode> batch = new HashMap<>(batchSize * 2);
+        for (int i = 0; i < batchSize; i++) {
+            batch.put(randomPlayer(), randomMode());
+        }
+        database.setPlayerSortModes(batch);
+    }
+
+    private UUID randomPlayer() {
+        return playerIds[ThreadLocalRandom.current().nextInt(playerIds.length)];
+    }
+
+    private PlayerSortPreferences.SortMode randomMode() {
+        return PlayerSortPreferences.SortMode.fromId(ThreadLocalRandom.current().nextInt(3));
+    }
+}
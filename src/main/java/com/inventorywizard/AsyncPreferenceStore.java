@@ -0,0 +1,187 @@
+package com.inventorywizard;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous persistence layer in front of H2DatabaseManager
+ * No JDBC work runs on the server thread: writes run in order on a single writer thread and reads run
+ * in parallel on a small reader pool, each on its own pooled connection. A read always starts after
+ * every write submitted before it, so a player who rejoins right after quitting reads their latest data
+ */
+public class AsyncPreferenceStore {
+
+    private final Plugin plugin;
+    private final H2DatabaseManager database;
+    private final ExecutorService executor;
+    private final ExecutorService readExecutor;
+
+    // Completes once every write submitted so far has run (the writer thread runs them in order)
+    private CompletableFuture<?> writeBarrier;
+
+    public AsyncPreferenceStore(Plugin plugin, H2DatabaseManager database) {
+        this.plugin = plugin;
+        this.database = database;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "InventoryWizard-Persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // One connection stays free for the writer
+        AtomicInteger readerNumber = new AtomicInteger();
+        this.readExecutor = Executors.newFixedThreadPool(Math.max(1, database.getPoolSize() - 1), runnable -> {
+            Thread thread = new Thread(runnable, "InventoryWizard-Persistence-Read-" + readerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Migrations are the first write, so every later read and write sees the current schema
+        submitWrite(database::migrate);
+    }
+
+    /**
+     * Write a player's sort mode off the server thread
+     * @param playerId The player's UUID
+     * @param mode The mode to store
+     * @return Future completed once the write has run
+     */
+    public CompletableFuture<Void> setPlayerSortMode(UUID playerId, PlayerSortPreferences.SortMode mode) {
+        return submitWrite(() -> database.setPlayerSortMode(playerId, mode));
+    }
+
+    /**
+     * Write several sort modes as one batched transaction
+     * @param modes Modes to store, keyed by player UUID
+     * @return Future completed once the batch has run
+     */
+    public CompletableFuture<Void> setPlayerSortModes(Map<UUID, PlayerSortPreferences.SortMode> modes) {
+        return submitWrite(() -> database.setPlayerSortModes(modes));
+    }
+
+    /**
+     * Read the stored preferences of one or many players off the server thread in bulk
+     * @param playerIds Players to load
+     * @return Future completed with the stored rows (players without one are missing)
+     */
+    public CompletableFuture<Map<UUID, H2DatabaseManager.StoredPreferences>> getPlayerPreferences(Collection<UUID> playerIds) {
+        return submitRead(() -> database.getPlayerPreferences(playerIds));
+    }
+
+    /**
+     * Write several auto-sort settings as one batched transaction
+     * @param settings Settings to store, keyed by player UUID
+     * @return Future completed once the batch has run
+     */
+    public CompletableFuture<Void> setPlayerAutoSorts(Map<UUID, Boolean> settings) {
+        return submitWrite(() -> database.setPlayerAutoSorts(settings));
+    }
+
+    /**
+     * Read a player's storage groups off the server thread
+     * @param owner The player's UUID
+     * @return Future completed with the groups keyed by name
+     */
+    public CompletableFuture<Map<String, StorageGroup>> getStorageGroups(UUID owner) {
+        return submitRead(() -> database.getStorageGroups(owner));
+    }
+
+    /**
+     * Link a container to a storage group off the server thread
+     * @param owner The player's UUID
+     * @param groupName Validated group name
+     * @param member The container
+     * @return Future completed once the write has run
+     */
+    public CompletableFuture<Void> linkStorageContainer(UUID owner, String groupName, StorageGroup.Member member) {
+        return submitWrite(() -> database.linkStorageContainer(owner, groupName, member));
+    }
+
+    /**
+     * Unlink a container from its storage group off the server thread
+     * @param owner The player's UUID
+     * @param member The container
+     * @return Future completed once the write has run
+     */
+    public CompletableFuture<Void> unlinkStorageContainer(UUID owner, StorageGroup.Member member) {
+        return submitWrite(() -> database.unlinkStorageContainer(owner, member));
+    }
+
+    /**
+     * Unlink a removed container from every player's storage groups off the server thread
+     * @param member The container
+     * @return Future completed once the write has run
+     */
+    public CompletableFuture<Void> unlinkStorageContainerEverywhere(StorageGroup.Member member) {
+        return submitWrite(() -> database.unlinkStorageContainerEverywhere(member));
+    }
+
+    /**
+     * Delete a storage group off the server thread
+     * @param owner The player's UUID
+     * @param groupName Validated group name
+     * @return Future completed once the write has run
+     */
+    public CompletableFuture<Void> deleteStorageGroup(UUID owner, String groupName) {
+        return submitWrite(() -> database.deleteStorageGroup(owner, groupName));
+    }
+
+    private synchronized CompletableFuture<Void> submitWrite(Runnable write) {
+        CompletableFuture<Void> future = CompletableFuture.runAsync(write, executor);
+        writeBarrier = future;
+        return future;
+    }
+
+    private <T> CompletableFuture<T> submitRead(Supplier<T> read) {
+        CompletableFuture<?> barrier;
+        synchronized (this) {
+            barrier = writeBarrier;
+        }
+        // A failed write still releases the reads queued behind it
+        return barrier.handle((result, error) -> null).thenApplyAsync(ignored -> read.get(), readExecutor);
+    }
+
+    /**
+     * Deliver a future's result on the main server thread
+     * Runs immediately when the future is already complete and we are on the main thread
+     * @param future The future to wait for
+     * @param action Action to run with the result (null if the future failed)
+     */
+    public <T> void deliverOnMainThread(CompletableFuture<T> future, Consumer<T> action) {
+        if (future.isDone() && plugin.getServer().isPrimaryThread()) {
+            action.accept(future.exceptionally(e -> null).join());
+            return;
+        }
+        future.whenComplete((result, error) -> {
+            if (!plugin.isEnabled()) {
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> action.accept(error == null ? result : null));
+        });
+    }
+
+    /**
+     * Stop accepting work and wait for queued writes to finish
+     * @param timeoutMs Maximum time to wait for the queue to drain
+     */
+    public void shutdown(long timeoutMs) {
+        // Pending reads are only cache warm-ups and can be dropped
+        readExecutor.shutdownNow();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for pending database writes to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
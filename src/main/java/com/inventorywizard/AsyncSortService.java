@@ -0,0 +1,186 @@
+package com.inventorywizard;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Runs container sort computation off the server thread in three phases:
+ * snapshot (main thread, detached copy of the slots), compute (bounded worker pool) and
+ * apply (main thread), where the layout is only written if the inventory still matches the snapshot
+ */
+public class AsyncSortService {
+
+    // Defaults used when config.yml doesn't override them
+    private static final int DEFAULT_MIN_SLOTS = 54;
+    private static final int MAX_DEFAULT_THREADS = 4;
+    private static final int QUEUE_CAPACITY = 256;
+
+    private final InventoryWizardPlugin plugin;
+    private final int minSlots;
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+
+    // Sorts between snapshot and apply, keyed by InventorySorter.containerKey (main thread only)
+    private final Map<Object, CompletableFuture<Boolean>> runningSorts = new HashMap<>();
+
+    public AsyncSortService(InventoryWizardPlugin plugin) {
+        this.plugin = plugin;
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("async-sort");
+        boolean enabled = section == null || section.getBoolean("enabled", true);
+        this.minSlots = section != null ? Math.max(1, section.getInt("min-slots", DEFAULT_MIN_SLOTS)) : DEFAULT_MIN_SLOTS;
+
+        int configuredThreads = section != null ? section.getInt("threads", 0) : 0;
+        this.threads = configuredThreads > 0
+            ? configuredThreads
+            : Math.max(1, Math.min(MAX_DEFAULT_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+
+        if (enabled) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            // Bounded queue; when it is full the server thread computes the sort itself
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "InventoryWizard-Sort-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        } else {
+            this.executor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    public int getParallelism() {
+        return threads;
+    }
+
+    /**
+     * Sort a container, off the server thread if it is large enough (async-sort.min-slots)
+     * The future always completes on the main thread; it never completes if the plugin is disabled first
+     * @param inventory The container to sort
+     * @param mode Sort mode to use
+     * @param allowPartialStacks Whether partial stacks are sorted alongside full ones
+     * @return Future with true if any slot changed
+     */
+    public CompletableFuture<Boolean> sortInventory(Inventory inventory, PlayerSortPreferences.SortMode mode,
+                                                    boolean allowPartialStacks) {
+        if (!isEnabled() || inventory.getSize() < minSlots) {
+            return CompletableFuture.completedFuture(InventorySorter.sortInventory(inventory, mode, allowPartialStacks));
+        }
+        return sortOffThread(inventory, mode, allowPartialStacks);
+    }
+
+    /**
+     * Get the pending result of an off-thread sort of a container, if one is running
+     * @param inventory The container
+     * @return Its future, or null if the container isn't being sorted
+     */
+    public CompletableFuture<Boolean> getRunningSort(Inventory inventory) {
+        return runningSorts.get(InventorySorter.containerKey(inventory));
+    }
+
+    /**
+     * Sort a container off the server thread regardless of its size (used by bulk jobs)
+     * If the container is already being sorted, the running sort's future is returned instead
+     * @see #sortInventory(Inventory, PlayerSortPreferences.SortMode, boolean)
+     */
+    public CompletableFuture<Boolean> sortOffThread(Inventory inventory, PlayerSortPreferences.SortMode mode,
+                                                    boolean allowPartialStacks) {
+        if (!isEnabled()) {
+            return CompletableFuture.completedFuture(InventorySorter.sortInventory(inventory, mode, allowPartialStacks));
+        }
+
+        Object key = InventorySorter.containerKey(inventory);
+        CompletableFuture<Boolean> running = runningSorts.get(key);
+        if (running != null) {
+            return running;
+        }
+
+        // Phase 1: detached copy, so workers never read stacks the server thread may be changing
+        ItemStack[] live = inventory.getContents();
+        ItemStack[] snapshot = new ItemStack[live.length];
+        for (int slot = 0; slot < live.length; slot++) {
+            snapshot[slot] = SortEngine.isEmpty(live[slot]) ? null : live[slot].clone();
+        }
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        runningSorts.put(key, result);
+        result.whenComplete((changed, error) -> runningSorts.remove(key, result));
+        // Resolve on the main thread so a concurrent reload can't change the strategy mid-sort
+        SortStrategy strategy = SortStrategyRegistry.forMode(mode);
+
+        // Phase 2: grouping, merging and ordering on the worker pool (null layout = already sorted)
+        CompletableFuture.supplyAsync(() -> SortEngine.layoutFor(snapshot, 0, snapshot.length, strategy, false, allowPartialStacks), executor)
+            .whenComplete((layout, error) -> {
+                if (!plugin.isEnabled()) {
+                    return;
+                }
+                // Phase 3: back on the main thread
+                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    if (error != null) {
+                        plugin.getLogger().log(Level.WARNING, "Off-thread sort failed, sorting on the main thread instead", error);
+                        result.complete(InventorySorter.sortInventory(inventory, strategy, allowPartialStacks));
+                        return;
+                    }
+                    result.complete(apply(inventory, snapshot, layout, strategy, allowPartialStacks));
+                });
+            });
+
+        return result;
+    }
+
+    /**
+     * Run a pure computation on the worker pool (inline when async sorting is disabled)
+     * Unlike sortInventory the future completes on the worker thread; callers poll it or hop back themselves
+     * @param task Work that must not touch live inventories
+     * @return Future with the task's result
+     */
+    <T> CompletableFuture<T> compute(Supplier<T> task) {
+        if (!isEnabled()) {
+            return CompletableFuture.completedFuture(task.get());
+        }
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    public void shutdown() {
+        runningSorts.clear();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean apply(Inventory inventory, ItemStack[] snapshot, ItemStack[] layout,
+                          SortStrategy strategy, boolean allowPartialStacks) {
+        ItemStack[] current = inventory.getContents();
+
+        // Version check: if anything moved since the snapshot the layout is stale, so sort the fresh contents instead
+        boolean unchanged = current.length == snapshot.length;
+        for (int slot = 0; unchanged && slot < current.length; slot++) {
+            unchanged = SortEngine.isSameStack(current[slot], snapshot[slot]);
+        }
+        if (!unchanged) {
+            plugin.getSortMetrics().recordAsyncConflict();
+            return InventorySorter.sortInventory(inventory, strategy, allowPartialStacks);
+        }
+
+        // Nested contents are sorted here rather than on the worker, since reading them builds block states
+        layout = NestedContentSorter.apply(current, 0, current.length, layout, strategy, allowPartialStacks);
+        if (layout == null) {
+            return false;
+        }
+        return InventorySorter.writeChangedSlots(inventory, current, layout, 0) > 0;
+    }
+}
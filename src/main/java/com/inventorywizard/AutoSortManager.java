@@ -0,0 +1,124 @@
+package com.inventorywizard;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sorts containers when a player with auto-sort enabled closes them
+ * Only containers the player actually changed while they had them open are sorted; closes are handed
+ * to the SortRequestQueue, which runs them within the shared per-tick budget without charging the player
+ */
+public class AutoSortManager implements Listener {
+
+    private final InventoryWizardPlugin plugin;
+    private final boolean enabled;
+    private final boolean allowPartialStacks;
+
+    // Players who changed the container they currently have open
+    private final Set<UUID> modifiedSessions = new HashSet<>();
+
+    public AutoSortManager(InventoryWizardPlugin plugin) {
+        this.plugin = plugin;
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("auto-sort");
+        this.enabled = section == null || section.getBoolean("enabled", true);
+        this.allowPartialStacks = plugin.getConfig().getBoolean("features.allow-partial-stacks-chest", true);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInventoryOpen(InventoryOpenEvent event) {
+        modifiedSessions.remove(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        Inventory top = event.getView().getTopInventory();
+        if (!isSortableContainer(top) || event.getAction() == InventoryAction.NOTHING) {
+            return;
+        }
+
+        // Clicks in the container itself, or ones that move items in or out of it from the player's inventory
+        boolean touchesContainer = top.equals(event.getClickedInventory())
+            || event.getAction() == InventoryAction.MOVE_TO_OTHER_INVENTORY
+            || event.getAction() == InventoryAction.COLLECT_TO_CURSOR;
+        if (touchesContainer) {
+            modifiedSessions.add(event.getWhoClicked().getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        Inventory top = event.getView().getTopInventory();
+        if (!isSortableContainer(top)) {
+            return;
+        }
+
+        for (int rawSlot : event.getRawSlots()) {
+            // Raw slots below the container size belong to the container
+            if (rawSlot < top.getSize()) {
+                modifiedSessions.add(event.getWhoClicked().getUniqueId());
+                return;
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInventoryClose(InventoryCloseEvent event) {
+        if (!(event.getPlayer() instanceof Player)) {
+            return;
+        }
+        Player player = (Player) event.getPlayer();
+        if (!modifiedSessions.remove(player.getUniqueId()) || !enabled) {
+            return;
+        }
+
+        Inventory inventory = event.getInventory();
+        if (!isSortableContainer(inventory)
+            || !player.hasPermission("inventorywizard.chest")
+            || !plugin.getPlayerPreferences().isAutoSortEnabled(player)) {
+            return;
+        }
+
+        // Waits for a preference load still in flight, so the chest isn't sorted in the default mode by mistake;
+        // several players closing the same chest only queue it once
+        plugin.getPlayerPreferences().withPlayerSortMode(player, mode ->
+            plugin.getSortRequestQueue().requestContainerSort(inventory, player, mode, allowPartialStacks, false));
+    }
+
+    /**
+     * Forget a player's open session (called when they leave)
+     * @param playerId The player's UUID
+     */
+    public void forget(UUID playerId) {
+        modifiedSessions.remove(playerId);
+    }
+
+    public void shutdown() {
+        modifiedSessions.clear();
+    }
+
+    private static boolean isSortableContainer(Inventory inventory) {
+        if (inventory == null || inventory.getLocation() == null) {
+            return false;
+        }
+        InventoryType type = inventory.getType();
+        return type == InventoryType.CHEST || type == InventoryType.BARREL || type == InventoryType.SHULKER_BOX;
+    }
+}
@@ -0,0 +1,339 @@
+package com.inventorywizard;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Container;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.DoubleChestInventory;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Sorts every storage container in a set of chunks, spread over as many ticks as needed
+ * Each tick does at most a fixed amount of work (the tick budget, capped by what is left of the scheduler's
+ * server-wide budget) so large storage rooms never cause a lag spike;
+ * with async-sort enabled the sorts themselves are computed on the worker pool and applied on later ticks
+ * Containers the player couldn't open by hand are skipped, and each sorted container is charged to the
+ * player's rate limit by its estimated cost; when the player runs out of sorts the job pauses until they refill
+ */
+public class BulkSortJob {
+
+    // Only plain storage grids are sorted; furnaces, brewing stands etc. have slot semantics
+    private static final Set<InventoryType> SORTABLE_TYPES =
+        EnumSet.of(InventoryType.CHEST, InventoryType.BARREL, InventoryType.SHULKER_BOX);
+    // How often a job paused for lack of sorts checks whether the player's sorts have refilled
+    private static final long REFILL_CHECK_INTERVAL_TICKS = 20L;
+
+    private final InventoryWizardPlugin plugin;
+    private final Player player;
+    private final PlayerSortPreferences.SortMode mode;
+    private final boolean allowPartialStacks;
+    private final World world;
+    private final int centerX;
+    private final int centerY;
+    private final int centerZ;
+    // Squared block radius, or -1 to take every container in the chunks
+    private final long radiusSquared;
+    private final long tickBudgetNanos;
+    private final long progressIntervalTicks;
+    private final Runnable onFinish;
+    private final AsyncSortService asyncSorts;
+    // Off-thread sorts submitted but not applied yet; bounded so snapshots don't pile up
+    private final int maxInFlight;
+
+    // Chunk coordinates still to scan, packed as (x << 32) | z
+    private final Deque<Long> chunksToScan = new ArrayDeque<>();
+    private final Deque<Block> containersToSort = new ArrayDeque<>();
+    // Positions already queued
+    private final Set<Long> seenPositions = new HashSet<>();
+    // Double chest halves already sorted through either side
+    private final Set<Long> sortedDoubleChestHalves = new HashSet<>();
+
+    private BukkitTask task;
+    private int containersFound;
+    private int containersSorted;
+    private int containersChanged;
+    private int containersDenied;
+    // Part of the token taken when the job started that hasn't been spent on containers yet
+    private double prepaidSorts = 1.0;
+    private long ticksRun;
+    // Tick (in ticksRun) before which a job waiting for sorts to refill doesn't try again
+    private long resumeAtTick;
+    private boolean toldOutOfSorts;
+    private int inFlight;
+    private boolean finished;
+
+    /**
+     * @param radius Block radius around the center, or -1 for whole chunks
+     * @param chunkCoordinates Chunks to scan as {x, z} pairs
+     */
+    BulkSortJob(InventoryWizardPlugin plugin, Player player, PlayerSortPreferences.SortMode mode,
+                int radius, int[][] chunkCoordinates, long tickBudgetNanos, long progressIntervalTicks,
+                Runnable onFinish) {
+        this.plugin = plugin;
+        this.player = player;
+        this.mode = mode;
+        this.allowPartialStacks = plugin.getConfig().getBoolean("features.allow-partial-stacks-chest", true);
+        this.world = player.getWorld();
+        this.centerX = player.getLocation().getBlockX();
+        this.centerY = player.getLocation().getBlockY();
+        this.centerZ = player.getLocation().getBlockZ();
+        this.radiusSquared = radius < 0 ? -1 : (long) radius * radius;
+        this.tickBudgetNanos = tickBudgetNanos;
+        this.progressIntervalTicks = Math.max(1, progressIntervalTicks);
+        this.onFinish = onFinish;
+        this.asyncSorts = plugin.getAsyncSortService();
+        this.maxInFlight = Math.max(1, asyncSorts.getParallelism() * 2);
+
+        for (int[] chunk : chunkCoordinates) {
+            chunksToScan.add(packChunk(chunk[0], chunk[1]));
+        }
+    }
+
+    void start() {
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    /**
+     * Stop the job before it finishes
+     * @param reason Message shown to the player (null to stay silent)
+     */
+    public void cancel(String reason) {
+        if (finished) {
+            return;
+        }
+        finish();
+        if (reason != null && player.isOnline()) {
+            player.sendMessage(reason + " §7(" + containersSorted + "/" + containersFound + " containers sorted)");
+        }
+    }
+
+    public int getContainersFound() {
+        return containersFound;
+    }
+
+    public int getContainersSorted() {
+        return containersSorted;
+    }
+
+    public boolean isScanning() {
+        return !chunksToScan.isEmpty();
+    }
+
+    private void tick() {
+        if (!player.isOnline()) {
+            cancel(null);
+            return;
+        }
+
+        // Paused while the server is lagging badly
+        if (plugin.getServerLoadMonitor().isDeferringBackgroundSorts()) {
+            return;
+        }
+
+        // Shares the server-wide sort budget with player sorts
+        SortRequestQueue scheduler = plugin.getSortRequestQueue();
+        long tickStart = System.nanoTime();
+        long deadline = tickStart + scheduler.grantBackgroundSlice(tickBudgetNanos);
+        ticksRun++;
+
+        // Discovery first, then sorting, both against the same per-tick budget
+        while (!chunksToScan.isEmpty() && System.nanoTime() < deadline) {
+            scanChunk(chunksToScan.poll());
+        }
+        while (chunksToScan.isEmpty() && !containersToSort.isEmpty() && inFlight < maxInFlight
+                && ticksRun >= resumeAtTick && System.nanoTime() < deadline) {
+            sortContainer(containersToSort.poll());
+        }
+        scheduler.recordBackgroundWork(System.nanoTime() - tickStart);
+        if (finished) {
+            return;
+        }
+
+        if (chunksToScan.isEmpty() && containersToSort.isEmpty() && inFlight == 0) {
+            finish();
+            player.sendMessage("§a✨ Sorted " + containersSorted + " containers (" + containersChanged
+                + " rearranged) over " + ticksRun + " ticks! (" + mode.getDisplayName() + ")");
+            if (containersDenied > 0) {
+                player.sendMessage("§7Skipped " + containersDenied + " containers you don't have access to.");
+            }
+            return;
+        }
+
+        if (ticksRun % progressIntervalTicks == 0) {
+            if (isScanning()) {
+                player.sendMessage("§7🔍 Searching for containers... " + containersFound + " found so far");
+            } else {
+                player.sendMessage("§7✨ Sorting containers... " + containersSorted + "/" + containersFound
+                    + (ticksRun < resumeAtTick ? " (waiting for your sorts to refill)" : ""));
+            }
+        }
+    }
+
+    private void scanChunk(long packed) {
+        int chunkX = (int) (packed >> 32);
+        int chunkZ = (int) packed;
+        // Never load chunks just to sort them
+        if (!world.isChunkLoaded(chunkX, chunkZ)) {
+            return;
+        }
+
+        Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+        for (BlockState state : chunk.getTileEntities(false)) {
+            if (!(state instanceof Container) || !SORTABLE_TYPES.contains(((Container) state).getInventory().getType())) {
+                continue;
+            }
+            Block block = state.getBlock();
+            if (!isInRange(block)) {
+                continue;
+            }
+            if (seenPositions.add(packPosition(block.getX(), block.getY(), block.getZ()))) {
+                containersToSort.add(block);
+                containersFound++;
+            }
+        }
+    }
+
+    private void sortContainer(Block block) {
+        // The chunk may have unloaded or the block been broken since it was discovered
+        if (!world.isChunkLoaded(block.getX() >> 4, block.getZ() >> 4)) {
+            containersFound--;
+            return;
+        }
+        BlockState state = block.getState(false);
+        if (!(state instanceof Container)) {
+            containersFound--;
+            return;
+        }
+
+        Inventory inventory = ((Container) state).getInventory();
+        if (!SORTABLE_TYPES.contains(inventory.getType())) {
+            containersFound--;
+            return;
+        }
+
+        long leftHalf = 0;
+        long rightHalf = 0;
+        boolean doubleChest = inventory instanceof DoubleChestInventory;
+        if (doubleChest) {
+            // Both halves are queued on their own; sort the combined inventory once
+            leftHalf = positionOf(((DoubleChestInventory) inventory).getLeftSide(), block);
+            rightHalf = positionOf(((DoubleChestInventory) inventory).getRightSide(), block);
+            if (sortedDoubleChestHalves.contains(leftHalf) || sortedDoubleChestHalves.contains(rightHalf)) {
+                containersFound--;
+                return;
+            }
+        }
+
+        if (!ContainerAccess.canOpen(plugin, player, block)) {
+            containersFound--;
+            containersDenied++;
+            return;
+        }
+        if (!charge(inventory)) {
+            // Try the same container again once the player's sorts have had time to refill
+            containersToSort.addFirst(block);
+            resumeAtTick = ticksRun + REFILL_CHECK_INTERVAL_TICKS;
+            if (!toldOutOfSorts) {
+                toldOutOfSorts = true;
+                player.sendMessage("§e⏳ You're out of sorts for now; the bulk sort continues as they refill."
+                    + " Use §f/iwiz cancel §eto stop it.");
+            }
+            return;
+        }
+        if (doubleChest) {
+            sortedDoubleChestHalves.add(leftHalf);
+            sortedDoubleChestHalves.add(rightHalf);
+        }
+
+        long startTime = System.nanoTime();
+        if (!asyncSorts.isEnabled()) {
+            recordSorted(inventory, InventorySorter.sortInventory(inventory, mode, allowPartialStacks), startTime);
+            return;
+        }
+
+        // Only the snapshot and the apply run on the server thread; the sort itself runs on the worker pool
+        inFlight++;
+        asyncSorts.sortOffThread(inventory, mode, allowPartialStacks).thenAccept(changed -> {
+            inFlight--;
+            if (!finished) {
+                recordSorted(inventory, changed, startTime);
+            }
+        });
+    }
+
+    /**
+     * Charge a container to the player's rate limit, spending what is left of the starting token first
+     * @return false if the player can't afford it
+     */
+    private boolean charge(Inventory inventory) {
+        double cost = plugin.getSortRequestQueue().estimateSortEquivalents(SortMetrics.Operation.CHEST, inventory.getSize());
+        if (prepaidSorts >= cost) {
+            prepaidSorts -= cost;
+            return true;
+        }
+        if (!plugin.getRateLimiter().tryCharge(player.getUniqueId(), cost - prepaidSorts)) {
+            return false;
+        }
+        prepaidSorts = 0;
+        return true;
+    }
+
+    private void recordSorted(Inventory inventory, boolean changed, long startTime) {
+        long elapsed = System.nanoTime() - startTime;
+        plugin.getSortMetrics().recordSort(SortMetrics.Operation.CHEST, mode, elapsed,
+            SortMetrics.countItems(inventory, 0, inventory.getSize()));
+        containersSorted++;
+        if (changed) {
+            containersChanged++;
+        }
+    }
+
+    private static long positionOf(Inventory half, Block fallback) {
+        if (half == null || half.getLocation() == null) {
+            return packPosition(fallback.getX(), fallback.getY(), fallback.getZ());
+        }
+        return packPosition(half.getLocation().getBlockX(), half.getLocation().getBlockY(), half.getLocation().getBlockZ());
+    }
+
+    private boolean isInRange(Block block) {
+        if (radiusSquared < 0) {
+            return true;
+        }
+        long dx = block.getX() - centerX;
+        long dy = block.getY() - centerY;
+        long dz = block.getZ() - centerZ;
+        return dx * dx + dy * dy + dz * dz <= radiusSquared;
+    }
+
+    private void finish() {
+        finished = true;
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        chunksToScan.clear();
+        containersToSort.clear();
+        if (onFinish != null) {
+            onFinish.run();
+        }
+    }
+
+    private static long packChunk(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    // Block positions packed the same way as BlockPos#asLong: 26 bits x, 26 bits z, 12 bits y
+    private static long packPosition(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+}
@@ -0,0 +1,123 @@
+package com.inventorywizard;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Starts and tracks bulk container sorts (/iwiz area and /iwiz chunk)
+ * Each player can run one job at a time; all jobs run on the main thread
+ */
+public class BulkSortManager {
+
+    // Defaults used when config.yml doesn't override them
+    private static final int DEFAULT_MAX_RADIUS = 32;
+    private static final double DEFAULT_TICK_BUDGET_MS = 2.0;
+    private static final long DEFAULT_PROGRESS_INTERVAL_TICKS = 40L;
+
+    private final InventoryWizardPlugin plugin;
+    private final Map<UUID, BulkSortJob> jobs = new HashMap<>();
+
+    private final int maxRadius;
+    private final long tickBudgetNanos;
+    private final long progressIntervalTicks;
+
+    public BulkSortManager(InventoryWizardPlugin plugin) {
+        this.plugin = plugin;
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("bulk-sort");
+        if (section == null) {
+            this.maxRadius = DEFAULT_MAX_RADIUS;
+            this.tickBudgetNanos = (long) (DEFAULT_TICK_BUDGET_MS * 1_000_000L);
+            this.progressIntervalTicks = DEFAULT_PROGRESS_INTERVAL_TICKS;
+        } else {
+            this.maxRadius = Math.max(1, section.getInt("max-radius", DEFAULT_MAX_RADIUS));
+            this.tickBudgetNanos = (long) (Math.max(0.1, section.getDouble("tick-budget-ms", DEFAULT_TICK_BUDGET_MS)) * 1_000_000L);
+            this.progressIntervalTicks = Math.max(1, section.getLong("progress-interval-ticks", DEFAULT_PROGRESS_INTERVAL_TICKS));
+        }
+    }
+
+    public int getMaxRadius() {
+        return maxRadius;
+    }
+
+    public boolean hasJob(Player player) {
+        return jobs.containsKey(player.getUniqueId());
+    }
+
+    /**
+     * Sort every container within a block radius of the player
+     * @param player The player
+     * @param mode Sort mode to use
+     * @param radius Radius in blocks (clamped to max-radius)
+     */
+    public void startArea(Player player, PlayerSortPreferences.SortMode mode, int radius) {
+        int clamped = Math.min(Math.max(1, radius), maxRadius);
+        int blockX = player.getLocation().getBlockX();
+        int blockZ = player.getLocation().getBlockZ();
+
+        List<int[]> chunks = new ArrayList<>();
+        for (int chunkX = (blockX - clamped) >> 4; chunkX <= (blockX + clamped) >> 4; chunkX++) {
+            for (int chunkZ = (blockZ - clamped) >> 4; chunkZ <= (blockZ + clamped) >> 4; chunkZ++) {
+                chunks.add(new int[] {chunkX, chunkZ});
+            }
+        }
+
+        start(player, mode, clamped, chunks.toArray(new int[0][]));
+    }
+
+    /**
+     * Sort every container in the chunk the player is standing in
+     * @param player The player
+     * @param mode Sort mode to use
+     */
+    public void startChunk(Player player, PlayerSortPreferences.SortMode mode) {
+        int chunkX = player.getLocation().getBlockX() >> 4;
+        int chunkZ = player.getLocation().getBlockZ() >> 4;
+        start(player, mode, -1, new int[][] {{chunkX, chunkZ}});
+    }
+
+    /**
+     * Cancel a player's running job
+     * @param player The player
+     * @return true if a job was running
+     */
+    public boolean cancel(Player player) {
+        BulkSortJob job = jobs.get(player.getUniqueId());
+        if (job == null) {
+            return false;
+        }
+        job.cancel("§e⏹ Bulk sort cancelled.");
+        return true;
+    }
+
+    /**
+     * Silently cancel a job for a player who left
+     * @param playerId The player's UUID
+     */
+    public void cancel(UUID playerId) {
+        BulkSortJob job = jobs.get(playerId);
+        if (job != null) {
+            job.cancel(null);
+        }
+    }
+
+    public void cancelAll() {
+        for (BulkSortJob job : new ArrayList<>(jobs.values())) {
+            job.cancel(null);
+        }
+        jobs.clear();
+    }
+
+    private void start(Player player, PlayerSortPreferences.SortMode mode, int radius, int[][] chunks) {
+        UUID playerId = player.getUniqueId();
+        BulkSortJob job = new BulkSortJob(plugin, player, mode, radius, chunks, tickBudgetNanos,
+            progressIntervalTicks, () -> jobs.remove(playerId));
+        jobs.put(playerId, job);
+        job.start();
+    }
+}
@@ -0,0 +1,163 @@
+package com.inventorywizard;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Category rules for one priority scheme (inventory or hotbar), read from config.yml
+ * Each rule matches materials by exact name, item/block tag or glob pattern; the first matching rule wins
+ * Rules are only evaluated while compiling MaterialCategoryIndex, never during a sort
+ */
+public final class CategoryRules {
+
+    /** Returned by match when no rule applies */
+    public static final int NO_MATCH = Integer.MIN_VALUE;
+
+    private static final CategoryRules EMPTY = new CategoryRules(Collections.emptyList());
+
+    private final List<Rule> rules;
+
+    private CategoryRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    public static CategoryRules empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compile the rules of one scheme
+     * Invalid entries are logged and skipped
+     * @param section The scheme's section under category-rules (may be null)
+     * @param logger Logger for problems in the configuration
+     * @return Compiled rules, in config order
+     */
+    public static CategoryRules load(ConfigurationSection section, Logger logger) {
+        if (section == null) {
+            return EMPTY;
+        }
+
+        List<Rule> rules = new ArrayList<>();
+        for (String name : section.getKeys(false)) {
+            ConfigurationSection ruleSection = section.getConfigurationSection(name);
+            if (ruleSection == null || !ruleSection.contains("priority")) {
+                logger.warning("Ignoring category rule '" + name + "': no priority set");
+                continue;
+            }
+
+            Set<Material> materials = EnumSet.noneOf(Material.class);
+            for (String materialName : ruleSection.getStringList("materials")) {
+                Material material = Material.matchMaterial(materialName);
+                if (material == null) {
+                    logger.warning("Category rule '" + name + "': unknown material '" + materialName + "'");
+                } else {
+                    materials.add(material);
+                }
+            }
+
+            for (String tagName : ruleSection.getStringList("tags")) {
+                Set<Material> tagged = resolveTag(tagName);
+                if (tagged == null) {
+                    logger.warning("Category rule '" + name + "': unknown tag '" + tagName + "'");
+                } else {
+                    materials.addAll(tagged);
+                }
+            }
+
+            List<Pattern> patterns = new ArrayList<>();
+            for (String glob : ruleSection.getStringList("patterns")) {
+                patterns.add(globToPattern(glob));
+            }
+
+            rules.add(new Rule(ruleSection.getInt("priority"), materials, patterns));
+        }
+        return new CategoryRules(rules);
+    }
+
+    /**
+     * Find the priority of the first rule matching a material
+     * @param material The material
+     * @return The rule's priority, or NO_MATCH
+     */
+    public int match(Material material) {
+        for (Rule rule : rules) {
+            if (rule.matches(material)) {
+                return rule.priority;
+            }
+        }
+        return NO_MATCH;
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    // Accepts "logs", "minecraft:logs", "#minecraft:logs" or the Tag field name "LOGS"
+    private static Set<Material> resolveTag(String tagName) {
+        String key = tagName.trim().toLowerCase(Locale.ROOT);
+        if (key.startsWith("#")) {
+            key = key.substring(1);
+        }
+        NamespacedKey namespacedKey = key.contains(":") ? NamespacedKey.fromString(key) : NamespacedKey.minecraft(key);
+        if (namespacedKey == null) {
+            return null;
+        }
+
+        Tag<Material> tag = Bukkit.getTag(Tag.REGISTRY_ITEMS, namespacedKey, Material.class);
+        if (tag == null) {
+            tag = Bukkit.getTag(Tag.REGISTRY_BLOCKS, namespacedKey, Material.class);
+        }
+        return tag != null ? tag.getValues() : null;
+    }
+
+    // Globs match whole material names: * is any run of characters, ? a single one
+    private static Pattern globToPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : glob.trim().toCharArray()) {
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+    }
+
+    private static final class Rule {
+        private final int priority;
+        private final Set<Material> materials;
+        private final List<Pattern> patterns;
+
+        private Rule(int priority, Set<Material> materials, List<Pattern> patterns) {
+            this.priority = priority;
+            this.materials = materials;
+            this.patterns = patterns;
+        }
+
+        private boolean matches(Material material) {
+            if (materials.contains(material)) {
+                return true;
+            }
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(material.name()).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.inventorywizard;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Sort strategy composed from a chain of SortKeys, each ascending or descending
+ * The chain is fixed at construction, so ordering groups is a loop over primitive key columns
+ */
+public final class ComparatorChainStrategy implements SortStrategy {
+
+    private final String name;
+    private final String displayName;
+    private final boolean mergeStacks;
+    private final SortKey[] keys;
+    private final boolean[] descending;
+    private final boolean stackLocal;
+
+    public ComparatorChainStrategy(String name, String displayName, boolean mergeStacks,
+                                   SortKey[] keys, boolean[] descending) {
+        if (keys.length != descending.length) {
+            throw new IllegalArgumentException("Every sort key needs a direction");
+        }
+        this.name = name;
+        this.displayName = displayName;
+        this.mergeStacks = mergeStacks;
+        this.keys = keys.clone();
+        this.descending = descending.clone();
+
+        boolean local = true;
+        for (SortKey key : keys) {
+            local &= key.isStackLocal();
+        }
+        this.stackLocal = local;
+    }
+
+    /**
+     * Build a strategy from config-style key specs such as "category" or "enchant-level desc"
+     * @param name Registry name
+     * @param displayName Name shown to players
+     * @param mergeStacks Whether similar stacks are merged
+     * @param specs Key specs in comparison order
+     * @return The strategy
+     * @throws IllegalArgumentException if a key or direction is unknown
+     */
+    public static ComparatorChainStrategy parse(String name, String displayName, boolean mergeStacks, List<String> specs) {
+        List<SortKey> keys = new ArrayList<>();
+        List<Boolean> directions = new ArrayList<>();
+
+        for (String spec : specs) {
+            String[] parts = spec.trim().split("\\s+");
+            SortKey key = SortKey.fromConfigName(parts[0]);
+            if (key == null) {
+                throw new IllegalArgumentException("Unknown sort key '" + parts[0] + "'");
+            }
+
+            boolean desc = false;
+            if (parts.length > 1) {
+                String direction = parts[1].toLowerCase(Locale.ROOT);
+                if (direction.equals("desc")) {
+                    desc = true;
+                } else if (!direction.equals("asc")) {
+                    throw new IllegalArgumentException("Unknown sort direction '" + parts[1] + "' for key " + parts[0]);
+                }
+            }
+            keys.add(key);
+            directions.add(desc);
+        }
+
+        boolean[] descending = new boolean[directions.size()];
+        for (int i = 0; i < descending.length; i++) {
+            descending[i] = directions.get(i);
+        }
+        return new ComparatorChainStrategy(name, displayName, mergeStacks, keys.toArray(new SortKey[0]), descending);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public boolean mergesStacks() {
+        return mergeStacks;
+    }
+
+    @Override
+    public int getKeyCount() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean isStackLocal() {
+        return stackLocal;
+    }
+
+    @Override
+    public void extractKeys(int key, ItemStack[] contents, int[] firstSlot, int[] totalAmount, int count,
+                            boolean hotbar, long[] out, int offset) {
+        keys[key].extractAll(contents, firstSlot, totalAmount, count, hotbar, descending[key], out, offset);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder chain = new StringBuilder(name).append(" [");
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                chain.append(", ");
+            }
+            chain.append(keys[i].getConfigName()).append(descending[i] ? " desc" : "");
+        }
+        return chain.append(mergeStacks ? "]" : "] (stacks kept)").toString();
+    }
+}
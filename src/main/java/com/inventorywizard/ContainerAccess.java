@@ -0,0 +1,34 @@
+package com.inventorywizard;
+
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Access checks for containers a player sorts without opening them (area, chunk and group sorts)
+ * Protection and claim plugins block container access by cancelling the right-click that would open it,
+ * so the same click is fired here and the container is only sorted if nobody denied it
+ * Main thread only
+ */
+public class ContainerAccess {
+
+    /**
+     * Check whether a player may open a container
+     * @param plugin Plugin firing the check
+     * @param player The player sorting the container
+     * @param block The container block
+     * @return true if no plugin denied the access
+     */
+    public static boolean canOpen(Plugin plugin, Player player, Block block) {
+        PlayerInteractEvent check = new PlayerInteractEvent(player, Action.RIGHT_CLICK_BLOCK, null, block,
+            BlockFace.UP, EquipmentSlot.HAND);
+        plugin.getServer().getPluginManager().callEvent(check);
+        // Cancelling the event denies the block interaction too
+        return check.useInteractedBlock() != Event.Result.DENY;
+    }
+}
@@ -2,6 +2,7 @@ package com.inventorywizard;
 
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
 
 import java.io.File;
 import java.io.IOException;
@@ -16,13 +17,13 @@ public class DatabaseCredentials {
     
     private final File credentialsFile;
     private final FileConfiguration credentialsConfig;
-    private final InventoryWizardPlugin plugin;
+    private final Plugin plugin;
     
     private static final String USERNAME_KEY = "database.username";
     private static final String PASSWORD_KEY = "database.password";
     private static final String SALT_KEY = "database.salt";
     
-    public DatabaseCredentials(InventoryWizardPlugin plugin) {
+    public DatabaseCredentials(Plugin plugin) {
         this.plugin = plugin;
         this.credentialsFile = new File(plugin.getDataFolder(), "database-credentials.yml");
         this.credentialsConfig = YamlConfiguration.loadConfiguration(credentialsFile);
@@ -72,7 +72,18 @@ public class ErrorHandler {
      * @return User-friendly error message
      */
     public static String getRateLimitErrorMessage(long timeRemaining, int sortsUsed) {
-        if (sortsUsed >= 10) {
+        return getRateLimitErrorMessage(timeRemaining, sortsUsed, 10);
+    }
+    
+    /**
+     * Get a user-friendly error message for rate limiting
+     * @param timeRemaining Time remaining in milliseconds
+     * @param sortsUsed Sorts used this minute
+     * @param maxSorts Configured sorts allowed per minute
+     * @return User-friendly error message
+     */
+    public static String getRateLimitErrorMessage(long timeRemaining, int sortsUsed, int maxSorts) {
+        if (sortsUsed >= maxSorts) {
             return "Rate limited! You've used all " + sortsUsed + " sorts this minute.";
         } else if (timeRemaining > 0) {
             return "Rate limited! Please wait " + (timeRemaining / 1000) + " seconds before trying again.";
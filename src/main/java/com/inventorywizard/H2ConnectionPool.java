@@ -0,0 +1,184 @@
+package com.inventorywizard;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Small fixed-size pool of connections to the embedded H2 database
+ * Connections are opened on demand, checked before they are handed out and replaced when they have dropped,
+ * so a lost connection is reconnected on the next call instead of failing every call after it
+ */
+public class H2ConnectionPool {
+
+    // Longest a caller waits for a free connection before giving up
+    private static final long ACQUIRE_TIMEOUT_MS = 5000L;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final int validationTimeoutSeconds;
+    private final Logger logger;
+
+    private final BlockingQueue<PooledConnection> idle;
+    private final AtomicInteger openCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    public H2ConnectionPool(String url, String username, String password, int maxSize,
+                            int validationTimeoutSeconds, Logger logger) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.validationTimeoutSeconds = Math.max(1, validationTimeoutSeconds);
+        this.logger = logger;
+        this.idle = new ArrayBlockingQueue<>(this.maxSize);
+    }
+
+    /**
+     * Borrow a working connection; every acquire must be paired with release
+     * @return A validated connection
+     * @throws SQLException If no connection could be opened or none became free in time
+     */
+    public PooledConnection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        PooledConnection pooled = idle.poll();
+        if (pooled == null && openCount.incrementAndGet() <= maxSize) {
+            return open();
+        }
+        if (pooled == null) {
+            openCount.decrementAndGet();
+            try {
+                pooled = idle.poll(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            if (pooled == null) {
+                throw new SQLException("Timed out waiting for a database connection");
+            }
+        }
+
+        if (!pooled.isValid(validationTimeoutSeconds)) {
+            logger.warning("Database connection was lost, reconnecting");
+            pooled.closeQuietly(logger);
+            return open();
+        }
+        return pooled;
+    }
+
+    /**
+     * Return a borrowed connection to the pool
+     * @param pooled The connection (ignored if null)
+     */
+    public void release(PooledConnection pooled) {
+        if (pooled == null) {
+            return;
+        }
+        if (closed || !idle.offer(pooled)) {
+            pooled.closeQuietly(logger);
+            openCount.decrementAndGet();
+        }
+    }
+
+    public int getOpenCount() {
+        return openCount.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Close every idle connection; connections still borrowed are closed when released
+     */
+    public void close() {
+        closed = true;
+        List<PooledConnection> drained = new ArrayList<>();
+        idle.drainTo(drained);
+        for (PooledConnection pooled : drained) {
+            pooled.closeQuietly(logger);
+            openCount.decrementAndGet();
+        }
+    }
+
+    // Caller has already reserved a slot in openCount
+    private PooledConnection open() throws SQLException {
+        try {
+            return new PooledConnection(DriverManager.getConnection(url, username, password));
+        } catch (SQLException e) {
+            openCount.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * A pooled connection with its own prepared statement cache
+     */
+    public static final class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Get a prepared statement, prepared once per connection and reused afterwards
+         * @param sql The statement
+         * @return Cached statement (parameters from earlier calls are overwritten by the caller)
+         * @throws SQLException If preparing fails
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        private boolean isValid(int timeoutSeconds) {
+            try {
+                return !connection.isClosed() && connection.isValid(timeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void closeQuietly(Logger logger) {
+            for (PreparedStatement statement : statements.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    logger.log(Level.FINE, "Error closing prepared statement", e);
+                }
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.log(Level.FINE, "Error closing database connection", e);
+            }
+        }
+    }
+}
@@ -1,24 +1,76 @@
 package com.inventorywizard;
 
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
 import java.io.File;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.logging.Level;
+import java.util.regex.Pattern;
 
 public class H2DatabaseManager {
     
+    private static final String SELECT_SORT_MODE_SQL = "SELECT sort_mode FROM player_preferences WHERE uuid = ?";
+    // Single-statement upsert; replaces the old INSERT-then-UPDATE-on-duplicate-key fallback
+    private static final String MERGE_SORT_MODE_SQL =
+        "MERGE INTO player_preferences (uuid, sort_mode, last_updated) KEY (uuid) VALUES (?, ?, ?)";
+    private static final String SELECT_PREFERENCES_SQL = "SELECT uuid, sort_mode, auto_sort FROM player_preferences WHERE uuid IN ";
+    // Largest IN (...) list sent in one query when bulk-loading
+    private static final int MAX_IN_LIST_SIZE = 256;
+    // Only touches auto_sort, so it never overwrites a sort mode written by the other statement
+    private static final String MERGE_AUTO_SORT_SQL =
+        "MERGE INTO player_preferences (uuid, auto_sort, last_updated) KEY (uuid) VALUES (?, ?, ?)";
+    private static final String SELECT_STORAGE_GROUPS_SQL =
+        "SELECT group_name, world, x, y, z FROM storage_group_members WHERE owner = ? ORDER BY group_name, linked_at";
+    // Linking a container that is already in another of the owner's groups moves it
+    private static final String MERGE_STORAGE_MEMBER_SQL =
+        "MERGE INTO storage_group_members (owner, group_name, world, x, y, z, linked_at) " +
+        "KEY (owner, world, x, y, z) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_STORAGE_MEMBER_SQL =
+        "DELETE FROM storage_group_members WHERE owner = ? AND world = ? AND x = ? AND y = ? AND z = ?";
+    private static final String DELETE_STORAGE_POSITION_SQL =
+        "DELETE FROM storage_group_members WHERE world = ? AND x = ? AND y = ? AND z = ?";
+    private static final String DELETE_STORAGE_GROUP_SQL =
+        "DELETE FROM storage_group_members WHERE owner = ? AND group_name = ?";
+    
+    // Defaults used when config.yml doesn't override them
+    private static final int DEFAULT_POOL_SIZE = 3;
+    private static final int DEFAULT_VALIDATION_TIMEOUT_SECONDS = 2;
+    // H2 URL settings that may be set from config.yml; anything else (e.g. INIT) is ignored
+    private static final Set<String> ALLOWED_URL_OPTIONS = new HashSet<>(Arrays.asList(
+        "CACHE_SIZE", "DB_CLOSE_DELAY", "WRITE_DELAY", "AUTO_SERVER", "LOCK_TIMEOUT",
+        "MAX_COMPACT_TIME", "DEFRAG_ALWAYS", "RETENTION_TIME"));
+    private static final Pattern URL_OPTION_VALUE = Pattern.compile("[A-Za-z0-9_.-]{1,32}");
+    
     private final Plugin plugin;
     private final String dbPath;
-    private Connection connection;
+    private H2ConnectionPool pool;
     private DatabaseCredentials credentials;
     private ErrorHandler errorHandler;
+    private final SortMetrics metrics;
     
     public H2DatabaseManager(Plugin plugin) {
+        this(plugin, new SortMetrics());
+    }
+    
+    public H2DatabaseManager(Plugin plugin, SortMetrics metrics) {
         this.plugin = plugin;
+        this.metrics = metrics;
         this.dbPath = new File(plugin.getDataFolder(), "player_preferences").getAbsolutePath();
-        this.credentials = new DatabaseCredentials((InventoryWizardPlugin) plugin);
+        this.credentials = new DatabaseCredentials(plugin);
         this.errorHandler = new ErrorHandler(plugin.getLogger());
         initializeDatabase();
     }
@@ -38,14 +90,17 @@ public class H2DatabaseManager {
                 Class.forName("com.inventorywizard.libs.h2.Driver");
             }
             
-            // Connect to H2 database with secure credentials
-            String url = "jdbc:h2:" + dbPath;
-            String username = credentials.getUsername();
-            String password = credentials.getPassword();
-            connection = DriverManager.getConnection(url, username, password);
+            // Connections are opened lazily by the pool with secure credentials
+            ConfigurationSection section = plugin.getConfig().getConfigurationSection("database");
+            int poolSize = section != null ? section.getInt("pool-size", DEFAULT_POOL_SIZE) : DEFAULT_POOL_SIZE;
+            int validationTimeout = section != null
+                ? section.getInt("validation-timeout-seconds", DEFAULT_VALIDATION_TIMEOUT_SECONDS)
+                : DEFAULT_VALIDATION_TIMEOUT_SECONDS;
+            String url = buildUrl(section != null ? section.getConfigurationSection("h2-options") : null);
+            pool = new H2ConnectionPool(url, credentials.getUsername(), credentials.getPassword(),
+                poolSize, validationTimeout, plugin.getLogger());
             
-            // Create table if it doesn't exist
-            createTable();
+            // Schema migrations run later on the persistence thread (see migrate)
             
             // Validate connection and log security status
             validateConnection();
@@ -59,32 +114,52 @@ public class H2DatabaseManager {
                 "H2 driver not found. Please ensure the plugin is properly built.",
                 e
             );
-        } catch (SQLException e) {
-            errorHandler.logError(
-                ErrorHandler.getDatabaseErrorMessage("initialization"),
-                "Failed to initialize H2 database",
-                e
-            );
         }
     }
     
-    private void createTable() throws SQLException {
-        // Use parameterized query for table creation to prevent SQL injection
-        String sql = "CREATE TABLE IF NOT EXISTS player_preferences (" +
-                    "uuid VARCHAR(36) PRIMARY KEY, " +
-                    "sort_mode INT DEFAULT 0, " +
-                    "last_updated BIGINT DEFAULT 0)";
-        
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(sql);
-            plugin.getLogger().info("Database table created/verified successfully");
+    /**
+     * Build the JDBC URL from the database path and the allowed H2 settings in config.yml
+     * @param options The database.h2-options section (may be null)
+     * @return URL such as jdbc:h2:/path/player_preferences;CACHE_SIZE=16384
+     */
+    private String buildUrl(ConfigurationSection options) {
+        StringBuilder url = new StringBuilder("jdbc:h2:").append(dbPath);
+        if (options == null) {
+            return url.toString();
+        }
+        for (String key : options.getKeys(false)) {
+            String option = key.toUpperCase(Locale.ROOT);
+            String value = String.valueOf(options.getString(key)).toUpperCase(Locale.ROOT);
+            if (!ALLOWED_URL_OPTIONS.contains(option) || !URL_OPTION_VALUE.matcher(value).matches()) {
+                plugin.getLogger().warning("Ignoring unsupported H2 option: " + key);
+                continue;
+            }
+            url.append(';').append(option).append('=').append(value);
+        }
+        return url.toString();
+    }
+    
+    /**
+     * Create or upgrade the schema (see SchemaMigrations)
+     * Runs as the first task on the persistence thread, so no query ever sees an old schema
+     */
+    public void migrate() {
+        if (pool == null) {
+            return;
+        }
+        H2ConnectionPool.PooledConnection pooled = null;
+        try {
+            pooled = pool.acquire();
+            int version = SchemaMigrations.migrate(pooled.getConnection(), plugin.getLogger());
+            plugin.getLogger().info("Database schema is at version " + version);
         } catch (SQLException e) {
             errorHandler.logError(
-                ErrorHandler.getDatabaseErrorMessage("table creation"),
-                "Failed to create database table",
+                ErrorHandler.getDatabaseErrorMessage("migration"),
+                "Failed to migrate database schema",
                 e
             );
-            throw e;
+        } finally {
+            pool.release(pooled);
         }
     }
     
@@ -95,16 +170,22 @@ public class H2DatabaseManager {
             return PlayerSortPreferences.SortMode.DEFAULT;
         }
         
-        String uuid = InputValidator.validateUUID(player.getUniqueId().toString());
+        return getPlayerSortMode(player.getUniqueId());
+    }
+    
+    public PlayerSortPreferences.SortMode getPlayerSortMode(UUID playerId) {
+        String uuid = playerId != null ? InputValidator.validateUUID(playerId.toString()) : null;
         if (uuid == null) {
-            errorHandler.logValidationError("UUID format", player.getName(), player.getUniqueId().toString());
+            errorHandler.logValidationError("UUID format", String.valueOf(playerId), String.valueOf(playerId));
             return PlayerSortPreferences.SortMode.DEFAULT;
         }
         
-        String sql = "SELECT sort_mode FROM player_preferences WHERE uuid = ?";
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, uuid);
+        long startTime = System.nanoTime();
+        H2ConnectionPool.PooledConnection pooled = null;
+        try {
+            pooled = pool.acquire();
+            PreparedStatement stmt = pooled.prepare(SELECT_SORT_MODE_SQL);
+            stmt.setObject(1, UUID.fromString(uuid));
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -114,73 +195,423 @@ public class H2DatabaseManager {
                 }
             }
         } catch (SQLException e) {
-            errorHandler.logDatabaseError("get sort mode", player.getName(), e);
+            errorHandler.logDatabaseError("get sort mode", uuid, e);
+        } finally {
+            pool.release(pooled);
+            metrics.recordDatabaseCall(SortMetrics.DatabaseOperation.READ, System.nanoTime() - startTime);
         }
         
         return PlayerSortPreferences.SortMode.DEFAULT;
     }
     
     public void setPlayerSortMode(Player player, PlayerSortPreferences.SortMode mode) {
+        // Validate input parameters
+        if (!InputValidator.validatePlayer(player)) {
+            errorHandler.logValidationError("player object", player.getName(), "null or invalid");
+            return;
+        }
+        
+        setPlayerSortMode(player.getUniqueId(), mode);
+    }
+    
+    public void setPlayerSortMode(UUID playerId, PlayerSortPreferences.SortMode mode) {
         // Validate all input parameters
-        InputValidator.ValidationResult validation = InputValidator.validateDatabaseInput(player, mode, System.currentTimeMillis());
+        InputValidator.ValidationResult validation = InputValidator.validateDatabaseInput(playerId, mode, System.currentTimeMillis());
         
         if (!validation.isValid()) {
-            errorHandler.logValidationError("database input", player.getName(), validation.getErrorMessage());
+            errorHandler.logValidationError("database input", String.valueOf(playerId), validation.getErrorMessage());
             return;
         }
         
-        String uuid = validation.getUuid();
-        int modeId = validation.getModeId();
-        long timestamp = validation.getTimestamp();
+        long startTime = System.nanoTime();
+        H2ConnectionPool.PooledConnection pooled = null;
+        try {
+            pooled = pool.acquire();
+            PreparedStatement stmt = pooled.prepare(MERGE_SORT_MODE_SQL);
+            bindMerge(stmt, validation);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            errorHandler.logDatabaseError("set sort mode", validation.getUuid(), e);
+        } finally {
+            pool.release(pooled);
+            metrics.recordDatabaseCall(SortMetrics.DatabaseOperation.WRITE, System.nanoTime() - startTime);
+        }
+    }
+    
+    /**
+     * Store many sort modes in a single batched transaction
+     * @param modes Modes to store, keyed by player UUID
+     */
+    public void setPlayerSortModes(Map<UUID, PlayerSortPreferences.SortMode> modes) {
+        if (modes.isEmpty()) {
+            return;
+        }
         
-        // Try INSERT first, if it fails due to duplicate key, use UPDATE
-        String insertSql = "INSERT INTO player_preferences (uuid, sort_mode, last_updated) VALUES (?, ?, ?)";
-        String updateSql = "UPDATE player_preferences SET sort_mode = ?, last_updated = ? WHERE uuid = ?";
+        long timestamp = System.currentTimeMillis();
+        boolean autoCommit = true;
         
-        try (PreparedStatement insertStmt = connection.prepareStatement(insertSql)) {
-            insertStmt.setString(1, uuid);
-            insertStmt.setInt(2, modeId);
-            insertStmt.setLong(3, timestamp);
+        H2ConnectionPool.PooledConnection pooled = null;
+        PreparedStatement stmt = null;
+        try {
+            pooled = pool.acquire();
+            Connection connection = pooled.getConnection();
+            stmt = pooled.prepare(MERGE_SORT_MODE_SQL);
+            int batched = 0;
+            
+            for (Map.Entry<UUID, PlayerSortPreferences.SortMode> entry : modes.entrySet()) {
+                InputValidator.ValidationResult validation =
+                    InputValidator.validateDatabaseInput(entry.getKey(), entry.getValue(), timestamp);
+                if (!validation.isValid()) {
+                    errorHandler.logValidationError("database input", String.valueOf(entry.getKey()), validation.getErrorMessage());
+                    continue;
+                }
+                bindMerge(stmt, validation);
+                stmt.addBatch();
+                batched++;
+            }
             
-            insertStmt.executeUpdate();
+            if (batched == 0) {
+                return;
+            }
             
+            long startTime = System.nanoTime();
+            autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                stmt.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                metrics.recordDatabaseCall(SortMetrics.DatabaseOperation.BATCH_WRITE, System.nanoTime() - startTime);
+            }
         } catch (SQLException e) {
-            // If insert fails (duplicate key), try update
-            try (PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
-                updateStmt.setInt(1, modeId);
-                updateStmt.setLong(2, timestamp);
-                updateStmt.setString(3, uuid);
-                
-                updateStmt.executeUpdate();
-                
-            } catch (SQLException updateException) {
-                errorHandler.logDatabaseError("set sort mode", player.getName(), updateException);
+            errorHandler.logDatabaseError("batch set sort modes", modes.size() + " players", e);
+        } finally {
+            clearBatch(stmt);
+            pool.release(pooled);
+        }
+    }
+    
+    /**
+     * Load the stored preferences of many players with as few queries as possible
+     * Players are looked up in chunks with SELECT ... WHERE uuid IN (...); players without a row are left out
+     * @param playerIds Players to load
+     * @return Stored preferences keyed by player UUID
+     */
+    public Map<UUID, StoredPreferences> getPlayerPreferences(Collection<UUID> playerIds) {
+        Map<UUID, StoredPreferences> found = new HashMap<>();
+        List<UUID> ids = new ArrayList<>(playerIds.size());
+        for (UUID playerId : playerIds) {
+            if (playerId != null && InputValidator.validateUUID(playerId.toString()) != null) {
+                ids.add(playerId);
+            } else {
+                errorHandler.logValidationError("UUID format", String.valueOf(playerId), String.valueOf(playerId));
+            }
+        }
+        if (ids.isEmpty()) {
+            return found;
+        }
+        
+        long startTime = System.nanoTime();
+        H2ConnectionPool.PooledConnection pooled = null;
+        try {
+            pooled = pool.acquire();
+            for (int from = 0; from < ids.size(); from += MAX_IN_LIST_SIZE) {
+                List<UUID> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IN_LIST_SIZE));
+                // Single lookups (every join) reuse a cached statement; bulk chunk sizes vary so they aren't cached
+                if (chunk.size() == 1) {
+                    readPreferences(pooled.prepare(SELECT_PREFERENCES_SQL + "(?)"), chunk, found);
+                } else {
+                    try (PreparedStatement stmt = pooled.getConnection().prepareStatement(
+                            SELECT_PREFERENCES_SQL + "(" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")")) {
+                        readPreferences(stmt, chunk, found);
+                    }
+                }
             }
+        } catch (SQLException e) {
+            errorHandler.logDatabaseError("load preferences", ids.size() + " players", e);
+        } finally {
+            pool.release(pooled);
+            metrics.recordDatabaseCall(SortMetrics.DatabaseOperation.READ, System.nanoTime() - startTime);
         }
+        return found;
     }
     
-    public PlayerSortPreferences.SortMode cyclePlayerSortMode(Player player) {
-        PlayerSortPreferences.SortMode currentMode = getPlayerSortMode(player);
-        PlayerSortPreferences.SortMode nextMode = currentMode.next();
-        setPlayerSortMode(player, nextMode);
-        return nextMode;
+    private void readPreferences(PreparedStatement stmt, List<UUID> chunk, Map<UUID, StoredPreferences> found) throws SQLException {
+        for (int i = 0; i < chunk.size(); i++) {
+            stmt.setObject(i + 1, chunk.get(i));
+        }
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                PlayerSortPreferences.SortMode mode =
+                    PlayerSortPreferences.SortMode.fromId(InputValidator.validateSortModeId(rs.getInt("sort_mode")));
+                found.put(rs.getObject("uuid", UUID.class), new StoredPreferences(mode, rs.getBoolean("auto_sort")));
+            }
+        }
     }
     
-    public void close() {
-        if (connection != null) {
+    /**
+     * Store many auto-sort settings in a single batched transaction
+     * @param settings Settings to store, keyed by player UUID
+     */
+    public void setPlayerAutoSorts(Map<UUID, Boolean> settings) {
+        if (settings.isEmpty()) {
+            return;
+        }
+        
+        long timestamp = System.currentTimeMillis();
+        boolean autoCommit = true;
+        
+        H2ConnectionPool.PooledConnection pooled = null;
+        PreparedStatement stmt = null;
+        try {
+            pooled = pool.acquire();
+            Connection connection = pooled.getConnection();
+            stmt = pooled.prepare(MERGE_AUTO_SORT_SQL);
+            int batched = 0;
+            
+            for (Map.Entry<UUID, Boolean> entry : settings.entrySet()) {
+                String uuid = entry.getKey() != null ? InputValidator.validateUUID(entry.getKey().toString()) : null;
+                if (uuid == null) {
+                    errorHandler.logValidationError("UUID format", String.valueOf(entry.getKey()), String.valueOf(entry.getKey()));
+                    continue;
+                }
+                stmt.setObject(1, UUID.fromString(uuid));
+                stmt.setBoolean(2, entry.getValue());
+                stmt.setLong(3, timestamp);
+                stmt.addBatch();
+                batched++;
+            }
+            
+            if (batched == 0) {
+                return;
+            }
+            
+            long startTime = System.nanoTime();
+            autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
             try {
-                connection.close();
-                plugin.getLogger().info("H2 database connection closed.");
-                    } catch (SQLException e) {
-            errorHandler.logError(
-                ErrorHandler.getDatabaseErrorMessage("connection close"),
-                "Error closing database connection",
-                e
-            );
+                stmt.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                metrics.recordDatabaseCall(SortMetrics.DatabaseOperation.BATCH_WRITE, System.nanoTime() - startTime);
+            }
+        } catch (SQLException e) {
+            errorHandler.logDatabaseError("batch set auto-sort", settings.size() + " players", e);
+        } finally {
+            clearBatch(stmt);
+            pool.release(pooled);
+        }
+    }
+    
+    /**
+     * Load every storage group a player owns
+     * @param owner The player's UUID
+     * @return Groups keyed by name, members in link order
+     */
+    public Map<String, StorageGroup> getStorageGroups(UUID owner) {
+        Map<String, StorageGroup> groups = new LinkedHashMap<>();
+        if (owner == null) {
+            return groups;
+        }
+        
+        long startTime = System.nanoTime();
+        H2ConnectionPool.PooledConnection pooled = null;
+        try {
+            pooled = pool.acquire();
+            PreparedStatement stmt = pooled.prepare(SELECT_STORAGE_GROUPS_SQL);
+            stmt.setObject(1, owner);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String name = InputValidator.validateGroupName(rs.getString("group_name"));
+                    if (name == null) {
+                        continue;
+                    }
+                    groups.computeIfAbsent(name, StorageGroup::new).add(new StorageGroup.Member(
+                        rs.getObject("world", UUID.class), rs.getInt("x"), rs.getInt("y"), rs.getInt("z")));
+                }
+            }
+        } catch (SQLException e) {
+            errorHandler.logDatabaseError("load storage groups", owner.toString(), e);
+        } finally {
+            pool.release(pooled);
+            metrics.recordDatabaseCall(SortMetrics.DatabaseOperation.READ, System.nanoTime() - startTime);
+        }
+        return groups;
+    }
+    
+    /**
+     * Add a container to one of a player's storage groups, moving it out of any other group they own
+     * @param owner The player's UUID
+     * @param groupName Validated group name
+     * @param member The container
+     */
+    public void linkStorageContainer(UUID owner, String groupName, StorageGroup.Member member) {
+        String name = InputValidator.validateGroupName(groupName);
+        if (owner == null || name == null) {
+            errorHandler.logValidationError("storage group", String.valueOf(owner), String.valueOf(groupName));
+            return;
+        }
+        
+        long startTime = System.nanoTime();
+        H2ConnectionPool.PooledConnection pooled = null;
+        try {
+            pooled = pool.acquire();
+            PreparedStatement stmt = pooled.prepare(MERGE_STORAGE_MEMBER_SQL);
+            stmt.setObject(1, owner);
+            stmt.setString(2, name);
+            bindMember(stmt, 3, member);
+            stmt.setLong(7, System.currentTimeMillis());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            errorHandler.logDatabaseError("link storage container", owner.toString(), e);
+        } finally {
+            pool.release(pooled);
+            metrics.recordDatabaseCall(SortMetrics.DatabaseOperation.WRITE, System.nanoTime() - startTime);
+        }
+    }
+    
+    /**
+     * Remove a container from whichever of a player's storage groups holds it
+     * @param owner The player's UUID
+     * @param member The container
+     */
+    public void unlinkStorageContainer(UUID owner, StorageGroup.Member member) {
+        if (owner == null) {
+            return;
+        }
+        
+        long startTime = System.nanoTime();
+        H2ConnectionPool.PooledConnection pooled = null;
+        try {
+            pooled = pool.acquire();
+            PreparedStatement stmt = pooled.prepare(DELETE_STORAGE_MEMBER_SQL);
+            stmt.setObject(1, owner);
+            bindMember(stmt, 2, member);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            errorHandler.logDatabaseError("unlink storage container", owner.toString(), e);
+        } finally {
+            pool.release(pooled);
+            metrics.recordDatabaseCall(SortMetrics.DatabaseOperation.WRITE, System.nanoTime() - startTime);
+        }
+    }
+    
+    /**
+     * Remove a container from every player's storage groups (it was broken or blown up)
+     * @param member The container
+     */
+    public void unlinkStorageContainerEverywhere(StorageGroup.Member member) {
+        long startTime = System.nanoTime();
+        H2ConnectionPool.PooledConnection pooled = null;
+        try {
+            pooled = pool.acquire();
+            PreparedStatement stmt = pooled.prepare(DELETE_STORAGE_POSITION_SQL);
+            bindMember(stmt, 1, member);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            errorHandler.logDatabaseError("unlink removed storage container at " + member, "all players", e);
+        } finally {
+            pool.release(pooled);
+            metrics.recordDatabaseCall(SortMetrics.DatabaseOperation.WRITE, System.nanoTime() - startTime);
+        }
+    }
+    
+    /**
+     * Delete one of a player's storage groups (the containers themselves are untouched)
+     * @param owner The player's UUID
+     * @param groupName Validated group name
+     */
+    public void deleteStorageGroup(UUID owner, String groupName) {
+        String name = InputValidator.validateGroupName(groupName);
+        if (owner == null || name == null) {
+            return;
+        }
+        
+        long startTime = System.nanoTime();
+        H2ConnectionPool.PooledConnection pooled = null;
+        try {
+            pooled = pool.acquire();
+            PreparedStatement stmt = pooled.prepare(DELETE_STORAGE_GROUP_SQL);
+            stmt.setObject(1, owner);
+            stmt.setString(2, name);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            errorHandler.logDatabaseError("delete storage group", owner.toString(), e);
+        } finally {
+            pool.release(pooled);
+            metrics.recordDatabaseCall(SortMetrics.DatabaseOperation.WRITE, System.nanoTime() - startTime);
+        }
+    }
+    
+    // The statement is cached with its connection, so rows left over from a failed flush must never reach the next one
+    private static void clearBatch(PreparedStatement stmt) {
+        if (stmt == null) {
+            return;
+        }
+        try {
+            stmt.clearBatch();
+        } catch (SQLException ignored) {
+            // A statement that can't be cleared is closed along with its broken connection
+        }
+    }
+    
+    private void bindMember(PreparedStatement stmt, int firstIndex, StorageGroup.Member member) throws SQLException {
+        stmt.setObject(firstIndex, member.getWorldId());
+        stmt.setInt(firstIndex + 1, member.getX());
+        stmt.setInt(firstIndex + 2, member.getY());
+        stmt.setInt(firstIndex + 3, member.getZ());
+    }
+    
+    private void bindMerge(PreparedStatement stmt, InputValidator.ValidationResult validation) throws SQLException {
+        stmt.setObject(1, UUID.fromString(validation.getUuid()));
+        stmt.setInt(2, validation.getModeId());
+        stmt.setLong(3, validation.getTimestamp());
+    }
+    
+    public void close() {
+        if (pool != null) {
+            pool.close();
+            plugin.getLogger().info("H2 database connections closed.");
+        }
+    }
+    
+    /**
+     * One player's row in player_preferences
+     */
+    public static final class StoredPreferences {
+        private final PlayerSortPreferences.SortMode sortMode;
+        private final boolean autoSort;
+        
+        public StoredPreferences(PlayerSortPreferences.SortMode sortMode, boolean autoSort) {
+            this.sortMode = sortMode;
+            this.autoSort = autoSort;
+        }
+        
+        public PlayerSortPreferences.SortMode getSortMode() {
+            return sortMode;
         }
+        
+        public boolean isAutoSort() {
+            return autoSort;
         }
     }
     
+    /**
+     * Get the maximum number of open connections
+     */
+    public int getPoolSize() {
+        return pool != null ? pool.getMaxSize() : 1;
+    }
+    
     /**
      * Regenerate database credentials for security purposes
      */
@@ -202,19 +633,23 @@ public class H2DatabaseManager {
      * Validate database connection and log security status
      */
     public void validateConnection() {
-        if (connection == null) {
-            plugin.getLogger().warning("Database connection is null");
+        if (pool == null) {
+            plugin.getLogger().warning("Database connection pool is not available");
             return;
         }
         
+        H2ConnectionPool.PooledConnection pooled = null;
         try {
+            pooled = pool.acquire();
             // Test connection with a simple query
-            try (Statement stmt = connection.createStatement()) {
+            try (Statement stmt = pooled.getConnection().createStatement()) {
                 stmt.execute("SELECT 1");
-                plugin.getLogger().info("Database connection validated successfully");
+                plugin.getLogger().info("Database connection validated successfully (pool size " + pool.getMaxSize() + ")");
             }
         } catch (SQLException e) {
             plugin.getLogger().log(Level.WARNING, "Database connection validation failed", e);
+        } finally {
+            pool.release(pooled);
         }
     }
     
@@ -14,6 +14,9 @@ public class InputValidator {
         "^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$"
     );
     
+    // Storage group names: short, lowercase, no spaces
+    private static final Pattern GROUP_NAME_PATTERN = Pattern.compile("^[a-z0-9_-]{1,32}$");
+    
     // Maximum values for validation
     private static final int MAX_SORT_MODE_ID = 10; // Reasonable upper limit
     private static final long MAX_TIMESTAMP = System.currentTimeMillis() + (365L * 24 * 60 * 60 * 1000); // 1 year in future
@@ -45,6 +48,20 @@ public class InputValidator {
         }
     }
     
+    /**
+     * Validate and normalize a storage group name
+     * @param name The group name to validate
+     * @return Lowercase group name or null if invalid
+     */
+    public static String validateGroupName(String name) {
+        if (name == null) {
+            return null;
+        }
+        
+        String normalized = name.trim().toLowerCase(java.util.Locale.ROOT);
+        return GROUP_NAME_PATTERN.matcher(normalized).matches() ? normalized : null;
+    }
+    
     /**
      * Validate sort mode ID
      * @param modeId The sort mode ID to validate
@@ -138,6 +155,35 @@ public class InputValidator {
         return new ValidationResult(true, null, uuid, modeId, validTimestamp);
     }
     
+    /**
+     * Validate and sanitize database input parameters for a player known only by UUID
+     * @param playerId The player's UUID
+     * @param mode The sort mode
+     * @param timestamp The timestamp
+     * @return ValidationResult containing validated parameters or error message
+     */
+    public static ValidationResult validateDatabaseInput(UUID playerId, 
+                                                       PlayerSortPreferences.SortMode mode, 
+                                                       long timestamp) {
+        // Validate UUID
+        String uuid = playerId != null ? validateUUID(playerId.toString()) : null;
+        if (uuid == null) {
+            return new ValidationResult(false, "Invalid UUID format");
+        }
+        
+        // Validate sort mode
+        if (mode == null) {
+            return new ValidationResult(false, "Invalid sort mode");
+        }
+        
+        int modeId = validateSortModeId(mode.getId());
+        
+        // Validate timestamp
+        long validTimestamp = validateTimestamp(timestamp);
+        
+        return new ValidationResult(true, null, uuid, modeId, validTimestamp);
+    }
+    
     /**
      * Result of input validation
      */
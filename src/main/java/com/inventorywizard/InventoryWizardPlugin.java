@@ -1,33 +1,88 @@
 package com.inventorywizard;
 
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
 public class InventoryWizardPlugin extends JavaPlugin {
     
     private PlayerSortPreferences playerPreferences;
     private RateLimiter rateLimiter;
+    private ServerLoadMonitor serverLoadMonitor;
+    private SortMetrics sortMetrics;
+    private BulkSortManager bulkSortManager;
+    private AsyncSortService asyncSortService;
+    private SortRequestQueue sortRequestQueue;
+    private AutoSortManager autoSortManager;
+    private StorageGroupManager storageGroupManager;
     
     @Override
     public void onEnable() {
+        // Save default config before anything reads it
+        saveDefaultConfig();
+        
+        // Compile the category rules so sorting only does table lookups
+        MaterialCategoryIndex.initialize(getConfig(), getLogger());
+        
+        // Register configured sort strategies and map sort modes onto them
+        SortStrategyRegistry.load(getConfig(), getLogger());
+        
+        // Optional sorting of shulker box and bundle contents
+        NestedContentSorter.configure(getConfig());
+        
+        // Metrics come first so the database layer can record into them
+        sortMetrics = new SortMetrics();
+        
         // Initialize rate limiter
-        rateLimiter = new RateLimiter();
+        rateLimiter = new RateLimiter(this);
+        
+        // Tightens the rate limits and pauses background sorting while the server is lagging
+        serverLoadMonitor = new ServerLoadMonitor(this);
         
         // Initialize player preferences
         playerPreferences = new PlayerSortPreferences(this);
+        // After a reload the online players never pass through login again, so warm them all in one query
+        List<UUID> onlinePlayers = new ArrayList<>();
+        for (Player player : getServer().getOnlinePlayers()) {
+            onlinePlayers.add(player.getUniqueId());
+        }
+        playerPreferences.loadPlayersAsync(onlinePlayers);
+        
+        // Worker pool for computing large container sorts off the server thread
+        asyncSortService = new AsyncSortService(this);
+        
+        // Coalesces sort requests per inventory and runs them at the end of the tick
+        sortRequestQueue = new SortRequestQueue(this);
+        
+        // Sorts changed containers when players with auto-sort close them
+        autoSortManager = new AutoSortManager(this);
+        
+        // Time-sliced area and chunk sorting
+        bulkSortManager = new BulkSortManager(this);
+        
+        // Linked containers sorted as one
+        storageGroupManager = new StorageGroupManager(this);
+        
+        // Periodically dump metrics to a rolling file
+        sortMetrics.startFileDump(this);
         
         // Register event listener
         getServer().getPluginManager().registerEvents(new SortListener(this), this);
+        getServer().getPluginManager().registerEvents(new PlayerSessionListener(this), this);
+        getServer().getPluginManager().registerEvents(sortRequestQueue, this);
+        getServer().getPluginManager().registerEvents(autoSortManager, this);
+        getServer().getPluginManager().registerEvents(storageGroupManager, this);
         
         // Register command
         SortCommand sortCommand = new SortCommand(this);
         getCommand("iwiz").setExecutor(sortCommand);
         getCommand("iwiz").setTabCompleter(sortCommand);
         
-        // Save default config
-        saveDefaultConfig();
-        
         getLogger().info("InventoryWizard has awakened! ✨");
-        getLogger().info("Commands: /iwiz [hotbar|inventory|all]");
+        getLogger().info("Commands: /iwiz [hotbar|inventory|all|area|chunk|autosort|group]");
         getLogger().info("Hotbar: Shift+Right-click in hotbar OR Double-click in hotbar");
         getLogger().info("Inventory: Shift+Right-click in main inventory");
         getLogger().info("Both: Shift+Right-click in hotbar (with all permission)");
@@ -45,9 +100,76 @@ public class InventoryWizardPlugin extends JavaPlugin {
         return rateLimiter;
     }
     
+    public ServerLoadMonitor getServerLoadMonitor() {
+        return serverLoadMonitor;
+    }
+    
+    public SortMetrics getSortMetrics() {
+        return sortMetrics;
+    }
+    
+    public BulkSortManager getBulkSortManager() {
+        return bulkSortManager;
+    }
+    
+    public AsyncSortService getAsyncSortService() {
+        return asyncSortService;
+    }
+    
+    public SortRequestQueue getSortRequestQueue() {
+        return sortRequestQueue;
+    }
+    
+    public AutoSortManager getAutoSortManager() {
+        return autoSortManager;
+    }
+    
+    public StorageGroupManager getStorageGroupManager() {
+        return storageGroupManager;
+    }
+    
+    /**
+     * Re-read config.yml and swap in new category tables, sort strategies, deep-sort settings, rate limits
+     * and load thresholds
+     * Sorts already in flight finish with the tables they started with
+     */
+    public void reloadSettings() {
+        reloadConfig();
+        MaterialCategoryIndex.initialize(getConfig(), getLogger());
+        SortStrategyRegistry.load(getConfig(), getLogger());
+        NestedContentSorter.configure(getConfig());
+        rateLimiter.loadLimits(getConfig().getConfigurationSection("rate-limit"));
+        serverLoadMonitor.configure(getConfig().getConfigurationSection("adaptive-throttle"));
+    }
+    
     @Override
     public void onDisable() {
+        if (sortRequestQueue != null) {
+            sortRequestQueue.clear();
+        }
+        if (bulkSortManager != null) {
+            bulkSortManager.cancelAll();
+        }
+        if (autoSortManager != null) {
+            autoSortManager.shutdown();
+        }
+        if (storageGroupManager != null) {
+            storageGroupManager.shutdown();
+        }
+        if (asyncSortService != null) {
+            asyncSortService.shutdown();
+        }
+        if (sortMetrics != null) {
+            sortMetrics.stopFileDump();
+        }
+        if (serverLoadMonitor != null) {
+            serverLoadMonitor.shutdown();
+        }
+        if (rateLimiter != null) {
+            rateLimiter.shutdown();
+        }
         if (playerPreferences != null) {
+            // Drains pending preference writes before closing the database
             playerPreferences.close();
         }
         getLogger().info("InventoryWizard is resting... The magic will return! ✨");
@@ -0,0 +1,75 @@
+package com.inventorywizard;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Compact grouping key for item stacks: material ordinal in the upper 32 bits, meta hash in the lower 32
+ * Similar stacks always share a fingerprint; stacks with equal fingerprints still need isSimilar to be merged,
+ * so a hash collision can never combine two different items
+ */
+final class ItemFingerprint {
+
+    // Direct-mapped identity cache size per thread (power of two)
+    private static final int CACHE_SIZE = 256;
+
+    private static final ThreadLocal<Cache> CACHE = ThreadLocal.withInitial(Cache::new);
+
+    private ItemFingerprint() {
+    }
+
+    /**
+     * Get the fingerprint of a non-empty stack
+     * Stacks without meta never touch getItemMeta(); stacks with meta are hashed once and
+     * remembered by identity, so the same snapshot stack is not copied again by later passes
+     * @param item The stack
+     * @return Fingerprint (amount is not part of it)
+     */
+    static long of(ItemStack item) {
+        long materialPart = (long) item.getType().ordinal() << 32;
+        if (!item.hasItemMeta()) {
+            return materialPart;
+        }
+        return CACHE.get().fingerprint(item, materialPart);
+    }
+
+    /**
+     * Check whether two non-empty stacks would merge, comparing fingerprints before isSimilar
+     */
+    static boolean isSimilar(ItemStack a, ItemStack b) {
+        if (a == b) {
+            return true;
+        }
+        return of(a) == of(b) && a.isSimilar(b);
+    }
+
+    private static int metaHash(ItemStack item) {
+        // getItemMeta() deep-copies the meta, which is why the result is cached
+        ItemMeta meta = item.getItemMeta();
+        return meta == null ? 0 : meta.hashCode();
+    }
+
+    /**
+     * Weak identity cache; a collision in the table just replaces the older entry
+     */
+    private static final class Cache {
+        @SuppressWarnings("unchecked")
+        private final WeakReference<ItemStack>[] stacks = new WeakReference[CACHE_SIZE];
+        private final long[] fingerprints = new long[CACHE_SIZE];
+
+        private long fingerprint(ItemStack item, long materialPart) {
+            int index = System.identityHashCode(item) & (CACHE_SIZE - 1);
+            WeakReference<ItemStack> cached = stacks[index];
+            if (cached != null && cached.get() == item && (fingerprints[index] & 0xFFFFFFFF00000000L) == materialPart) {
+                return fingerprints[index];
+            }
+
+            long fingerprint = materialPart | (metaHash(item) & 0xFFFFFFFFL);
+            stacks[index] = new WeakReference<>(item);
+            fingerprints[index] = fingerprint;
+            return fingerprint;
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package com.inventorywizard;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import java.util.logging.Logger;
+
+/**
+ * Precomputed sorting priorities for every Material
+ * Classifies each material once so comparators become array lookups instead of
+ * repeated name().contains() scans during every sort
+ * The table is rebuilt from config.yml on reload and swapped in atomically; sorts already running keep the old one
+ */
+public final class MaterialCategoryIndex {
+
+    // Priority used for anything that doesn't fall into a known category
+    public static final int INVENTORY_OTHER_PRIORITY = InventoryCategory.OTHER.getDefaultPriority();
+    public static final int HOTBAR_OTHER_PRIORITY = HotbarCategory.OTHER.getDefaultPriority();
+
+    private static volatile Table table;
+
+    private MaterialCategoryIndex() {
+    }
+
+    /**
+     * A built-in category with a configurable priority
+     */
+    public interface Category {
+        String getConfigName();
+
+        int getDefaultPriority();
+    }
+
+    /**
+     * Built-in hotbar categories (optimized for PvP/survival), keyed by their name under hotbar-priorities
+     */
+    public enum HotbarCategory implements Category {
+        WEAPONS("weapons", 100),
+        TOOLS("tools", 200),
+        FOOD("food", 300),
+        BUILDING_BLOCKS("building-blocks", 400),
+        UTILITY_ITEMS("utility-items", 500),
+        OTHER("other", 999);
+
+        private final String configName;
+        private final int defaultPriority;
+
+        HotbarCategory(String configName, int defaultPriority) {
+            this.configName = configName;
+            this.defaultPriority = defaultPriority;
+        }
+
+        @Override
+        public String getConfigName() {
+            return configName;
+        }
+
+        @Override
+        public int getDefaultPriority() {
+            return defaultPriority;
+        }
+    }
+
+    /**
+     * Built-in regular inventory categories, keyed by their name under inventory-priorities
+     */
+    public enum InventoryCategory implements Category {
+        STONE("stone", 100),
+        EARTH("earth", 200),
+        WOOD("wood", 300),
+        ORES("ores", 400),
+        BLOCKS("blocks", 500),
+        TOOLS("tools", 600),
+        WEAPONS("weapons", 700),
+        ARMOR("armor", 800),
+        FOOD("food", 900),
+        REDSTONE("redstone", 1000),
+        TRANSPORTATION("transportation", 1100),
+        DECORATION("decoration", 1200),
+        OTHER("other", 9999);
+
+        private final String configName;
+        private final int defaultPriority;
+
+        InventoryCategory(String configName, int defaultPriority) {
+            this.configName = configName;
+            this.defaultPriority = defaultPriority;
+        }
+
+        @Override
+        public String getConfigName() {
+            return configName;
+        }
+
+        @Override
+        public int getDefaultPriority() {
+            return defaultPriority;
+        }
+    }
+
+    /**
+     * Classify every Material up front with the built-in categories and default priorities
+     */
+    public static void initialize() {
+        table = buildTable(MaterialCategoryIndex::classifyInventoryPriority, MaterialCategoryIndex::classifyHotbarPriority);
+    }
+
+    /**
+     * Compile the category configuration into a new table and swap it in (called at enable and on reload)
+     * Reads inventory-priorities, hotbar-priorities and the category-rules for both schemes;
+     * a material matched by a rule takes the rule's priority, everything else its built-in category's
+     * Must run on the main thread, since tag references are resolved through the server
+     * @param config Plugin configuration root
+     * @param logger Logger for problems in the configuration
+     */
+    public static void initialize(ConfigurationSection config, Logger logger) {
+        Map<InventoryCategory, Integer> inventoryPriorities = readPriorities(InventoryCategory.class,
+            InventoryCategory.values(), config.getConfigurationSection("inventory-priorities"));
+        Map<HotbarCategory, Integer> hotbarPriorities = readPriorities(HotbarCategory.class,
+            HotbarCategory.values(), config.getConfigurationSection("hotbar-priorities"));
+
+        CategoryRules inventoryRules = CategoryRules.load(config.getConfigurationSection("category-rules.inventory"), logger);
+        CategoryRules hotbarRules = CategoryRules.load(config.getConfigurationSection("category-rules.hotbar"), logger);
+
+        table = buildTable(
+            material -> {
+                int priority = inventoryRules.match(material);
+                return priority != CategoryRules.NO_MATCH ? priority : inventoryPriorities.get(classifyInventoryCategory(material));
+            },
+            material -> {
+                int priority = hotbarRules.match(material);
+                return priority != CategoryRules.NO_MATCH ? priority : hotbarPriorities.get(classifyHotbarCategory(material));
+            });
+
+        if (inventoryRules.size() + hotbarRules.size() > 0) {
+            logger.info("Loaded " + inventoryRules.size() + " inventory and " + hotbarRules.size() + " hotbar category rules");
+        }
+    }
+
+    /**
+     * Build the table from custom classifiers (used where Material registry data isn't available, e.g. benchmarks)
+     * @param inventoryClassifier Regular inventory priority per material
+     * @param hotbarClassifier Hotbar priority per material
+     */
+    static void initialize(ToIntFunction<Material> inventoryClassifier, ToIntFunction<Material> hotbarClassifier) {
+        table = buildTable(inventoryClassifier, hotbarClassifier);
+    }
+
+    /**
+     * Get the regular inventory priority for a material
+     * @param material The material to look up
+     * @return Category priority (lower sorts first)
+     */
+    public static int getInventoryPriority(Material material) {
+        return getTable().getInventoryPriority(material);
+    }
+
+    /**
+     * Get the hotbar priority for a material
+     * @param material The material to look up
+     * @return Category priority (lower sorts first)
+     */
+    public static int getHotbarPriority(Material material) {
+        return getTable().getHotbarPriority(material);
+    }
+
+    /**
+     * Get the case-insensitive alphabetical rank of a material's name
+     * @param material The material to look up
+     * @return Rank such that comparing ranks matches name().compareToIgnoreCase()
+     */
+    public static int getNameRank(Material material) {
+        return getTable().getNameRank(material);
+    }
+
+    /**
+     * Get the current table, so a whole sort can read from one consistent snapshot even if a reload swaps it
+     */
+    static Table getTable() {
+        Table current = table;
+        if (current == null) {
+            // Lazily build if used before the plugin enabled us; building is idempotent
+            current = buildTable(MaterialCategoryIndex::classifyInventoryPriority, MaterialCategoryIndex::classifyHotbarPriority);
+            table = current;
+        }
+        return current;
+    }
+
+    private static <C extends Enum<C> & Category> Map<C, Integer> readPriorities(Class<C> type, C[] categories,
+                                                                                 ConfigurationSection section) {
+        Map<C, Integer> priorities = new EnumMap<>(type);
+        for (C category : categories) {
+            int defaultPriority = category.getDefaultPriority();
+            priorities.put(category, section != null ? section.getInt(category.getConfigName(), defaultPriority) : defaultPriority);
+        }
+        return priorities;
+    }
+
+    private static Table buildTable(ToIntFunction<Material> inventoryClassifier, ToIntFunction<Material> hotbarClassifier) {
+        Material[] materials = Material.values();
+        int[] inventoryPriorities = new int[materials.length];
+        int[] hotbarPriorities = new int[materials.length];
+
+        for (Material material : materials) {
+            // Legacy materials never appear on items in a modern server
+            if (material.isLegacy()) {
+                inventoryPriorities[material.ordinal()] = INVENTORY_OTHER_PRIORITY;
+                hotbarPriorities[material.ordinal()] = HOTBAR_OTHER_PRIORITY;
+                continue;
+            }
+            inventoryPriorities[material.ordinal()] = inventoryClassifier.applyAsInt(material);
+            hotbarPriorities[material.ordinal()] = hotbarClassifier.applyAsInt(material);
+        }
+
+        // Rank names once so alphabetical comparisons never touch strings
+        Material[] byName = materials.clone();
+        Arrays.sort(byName, (a, b) -> a.name().compareToIgnoreCase(b.name()));
+        int[] nameRanks = new int[materials.length];
+        for (int rank = 0; rank < byName.length; rank++) {
+            nameRanks[byName[rank].ordinal()] = rank;
+        }
+
+        return new Table(inventoryPriorities, hotbarPriorities, nameRanks);
+    }
+
+    // Hotbar-specific priority with the built-in defaults
+    static int classifyHotbarPriority(Material material) {
+        return classifyHotbarCategory(material).getDefaultPriority();
+    }
+
+    // Regular inventory priority with the built-in defaults
+    static int classifyInventoryPriority(Material material) {
+        return classifyInventoryCategory(material).getDefaultPriority();
+    }
+
+    static HotbarCategory classifyHotbarCategory(Material material) {
+        // 1. Weapons (highest priority)
+        if (isWeaponType(material)) return HotbarCategory.WEAPONS;
+
+        // 2. Tools
+        if (isToolType(material)) return HotbarCategory.TOOLS;
+
+        // 3. Food
+        if (material.isEdible()) return HotbarCategory.FOOD;
+
+        // 4. Blocks (for building/bridging)
+        if (isQuickBuildBlock(material)) return HotbarCategory.BUILDING_BLOCKS;
+
+        // 5. Utility items
+        if (isUtilityItem(material)) return HotbarCategory.UTILITY_ITEMS;
+
+        // 6. Everything else
+        return HotbarCategory.OTHER;
+    }
+
+    static InventoryCategory classifyInventoryCategory(Material material) {
+        // 1. Building Blocks - Stone types
+        if (isStoneType(material)) return InventoryCategory.STONE;
+
+        // 2. Building Blocks - Dirt/Earth types
+        if (isEarthType(material)) return InventoryCategory.EARTH;
+
+        // 3. Building Blocks - Wood types
+        if (isWoodType(material)) return InventoryCategory.WOOD;
+
+        // 4. Building Blocks - Ores and Metals
+        if (isOreType(material)) return InventoryCategory.ORES;
+
+        // 5. Building Blocks - Other blocks
+        if (material.isBlock()) return InventoryCategory.BLOCKS;
+
+        // 6. Tools
+        if (isToolType(material)) return InventoryCategory.TOOLS;
+
+        // 7. Weapons
+        if (isWeaponType(material)) return InventoryCategory.WEAPONS;
+
+        // 8. Armor
+        if (isArmorType(material)) return InventoryCategory.ARMOR;
+
+        // 9. Food
+        if (material.isEdible()) return InventoryCategory.FOOD;
+
+        // 10. Redstone items
+        if (isRedstoneType(material)) return InventoryCategory.REDSTONE;
+
+        // 11. Transportation
+        if (isTransportationType(material)) return InventoryCategory.TRANSPORTATION;
+
+        // 12. Decoration
+        if (isDecorationType(material)) return InventoryCategory.DECORATION;
+
+        // 13. Miscellaneous items
+        return InventoryCategory.OTHER;
+    }
+
+    private static boolean isQuickBuildBlock(Material material) {
+        String name = material.name();
+        // Common blocks used for quick building/bridging
+        return name.contains("COBBLESTONE") || name.contains("DIRT") ||
+               name.contains("STONE") || name.contains("PLANKS") ||
+               name.contains("SAND") || name.contains("GRAVEL") ||
+               name.contains("WOOL");
+    }
+
+    private static boolean isUtilityItem(Material material) {
+        String name = material.name();
+        return name.contains("ENDER_PEARL") || name.contains("WATER_BUCKET") ||
+               name.contains("LAVA_BUCKET") || name.contains("BUCKET") ||
+               name.contains("TORCH") || name.contains("FLINT_AND_STEEL") ||
+               name.contains("COMPASS") || name.contains("MAP");
+    }
+
+    // All helper methods using .name().contains() pattern consistently
+    private static boolean isStoneType(Material material) {
+        String name = material.name();
+        return name.contains("STONE") || name.contains("GRANITE") || name.contains("DIORITE") ||
+               name.contains("ANDESITE") || name.contains("COBBLESTONE") || name.contains("BLACKSTONE") ||
+               name.contains("BASALT") || name.contains("TUFF") || name.contains("DEEPSLATE");
+    }
+
+    private static boolean isEarthType(Material material) {
+        String name = material.name();
+        return name.contains("DIRT") || name.contains("GRASS") || name.contains("SAND") ||
+               name.contains("GRAVEL") || name.contains("CLAY") || name.contains("TERRACOTTA") ||
+               name.contains("CONCRETE") || name.contains("NETHERRACK") || name.contains("SOUL_SAND") ||
+               name.contains("SOUL_SOIL");
+    }
+
+    private static boolean isWoodType(Material material) {
+        String name = material.name();
+        return (name.contains("LOG") || name.contains("WOOD") || name.contains("PLANKS") ||
+                name.contains("LEAVES") || name.contains("SAPLING")) && material.isBlock();
+    }
+
+    private static boolean isOreType(Material material) {
+        String name = material.name();
+        return name.contains("_ORE") || (name.contains("_BLOCK") &&
+               (name.contains("IRON") || name.contains("GOLD") || name.contains("DIAMOND") ||
+                name.contains("EMERALD") || name.contains("COAL") || name.contains("COPPER") ||
+                name.contains("REDSTONE") || name.contains("LAPIS") || name.contains("NETHERITE")));
+    }
+
+    private static boolean isToolType(Material material) {
+        String name = material.name();
+        return name.contains("PICKAXE") || name.contains("AXE") || name.contains("SHOVEL") ||
+               name.contains("HOE") || name.contains("SHEARS") || name.contains("FLINT_AND_STEEL") ||
+               name.contains("FISHING_ROD") || name.contains("COMPASS") || name.contains("CLOCK");
+    }
+
+    private static boolean isWeaponType(Material material) {
+        String name = material.name();
+        return name.contains("SWORD") || name.contains("BOW") || name.contains("CROSSBOW") ||
+               name.contains("TRIDENT") || name.contains("ARROW");
+    }
+
+    private static boolean isArmorType(Material material) {
+        String name = material.name();
+        return name.contains("HELMET") || name.contains("CHESTPLATE") || name.contains("LEGGINGS") ||
+               name.contains("BOOTS") || name.contains("SHIELD") || name.contains("ELYTRA");
+    }
+
+    private static boolean isRedstoneType(Material material) {
+        String name = material.name();
+        return name.contains("REDSTONE") || name.contains("REPEATER") || name.contains("COMPARATOR") ||
+               name.contains("PISTON") || name.contains("STICKY_PISTON") || name.contains("DISPENSER") ||
+               name.contains("DROPPER") || name.contains("HOPPER") || name.contains("PRESSURE_PLATE") ||
+               name.contains("BUTTON") || name.contains("LEVER") || (name.contains("DOOR") && material.isBlock());
+    }
+
+    private static boolean isTransportationType(Material material) {
+        String name = material.name();
+        return name.contains("MINECART") || name.contains("BOAT") || name.contains("SADDLE");
+    }
+
+    private static boolean isDecorationType(Material material) {
+        String name = material.name();
+        return name.contains("CARPET") || name.contains("BANNER") || name.contains("PAINTING") ||
+               name.contains("ITEM_FRAME") || name.contains("FLOWER_POT") || name.contains("FLOWER") ||
+               name.contains("TULIP") || name.contains("TORCH") || name.contains("LANTERN") ||
+               name.contains("CANDLE") || name.contains("HEAD") || name.contains("SKULL");
+    }
+
+    /**
+     * Immutable snapshot of the ordinal-indexed priority arrays
+     */
+    static final class Table {
+        private final int[] inventoryPriorities;
+        private final int[] hotbarPriorities;
+        private final int[] nameRanks;
+
+        private Table(int[] inventoryPriorities, int[] hotbarPriorities, int[] nameRanks) {
+            this.inventoryPriorities = inventoryPriorities;
+            this.hotbarPriorities = hotbarPriorities;
+            this.nameRanks = nameRanks;
+        }
+
+        int getInventoryPriority(Material material) {
+            return inventoryPriorities[material.ordinal()];
+        }
+
+        int getHotbarPriority(Material material) {
+            return hotbarPriorities[material.ordinal()];
+        }
+
+        int getNameRank(Material material) {
+            return nameRanks[material.ordinal()];
+        }
+    }
+}
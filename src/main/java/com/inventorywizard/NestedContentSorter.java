@@ -0,0 +1,203 @@
+package com.inventorywizard;
+
+import org.bukkit.Material;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.ShulkerBox;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.BlockStateMeta;
+import org.bukkit.inventory.meta.BundleMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optional deep sort: also sorts the contents of shulker boxes and bundles lying in a sorted range
+ * Nested contents go through the same SortEngine layout as the outer inventory. A sort opens at most
+ * deep-sort.max-nested-per-sort nested containers, and items whose fingerprint was already sorted
+ * with the same strategy are skipped without reading their contents again, once isSimilar has confirmed
+ * the item really is the one that was cached (a 64-bit fingerprint can collide)
+ */
+final class NestedContentSorter {
+
+    // Defaults used when config.yml doesn't override them
+    private static final int DEFAULT_MAX_NESTED_PER_SORT = 16;
+    // Shulker box > bundle > bundle; anything nested deeper is left as it is
+    private static final int MAX_DEPTH = 3;
+    // Sorted fingerprints remembered before the cache starts over; each entry holds a copy of its item
+    private static final int MAX_CACHED_FINGERPRINTS = 1024;
+
+    // Item types that can hold other items (checked before any meta is read)
+    private static final Set<Material> CONTAINER_ITEMS = EnumSet.noneOf(Material.class);
+
+    static {
+        for (Material material : Material.values()) {
+            String name = material.name();
+            if (name.endsWith("SHULKER_BOX") || name.equals("BUNDLE") || name.endsWith("_BUNDLE")) {
+                CONTAINER_ITEMS.add(material);
+            }
+        }
+    }
+
+    private static volatile boolean enabled;
+    private static volatile int maxNestedPerSort = DEFAULT_MAX_NESTED_PER_SORT;
+
+    // Fingerprints of nested containers known to be sorted, with the item and strategy (main thread only)
+    private static final Map<Long, SortedItem> sortedWithPartialStacks = new HashMap<>();
+    private static final Map<Long, SortedItem> sortedWithFullStacks = new HashMap<>();
+
+    private NestedContentSorter() {
+    }
+
+    /**
+     * Read the deep-sort section of config.yml and forget every cached fingerprint
+     * @param config Root configuration
+     */
+    static void configure(ConfigurationSection config) {
+        ConfigurationSection section = config.getConfigurationSection("deep-sort");
+        enabled = section != null && section.getBoolean("enabled", false);
+        maxNestedPerSort = section != null
+            ? Math.max(1, section.getInt("max-nested-per-sort", DEFAULT_MAX_NESTED_PER_SORT))
+            : DEFAULT_MAX_NESTED_PER_SORT;
+        sortedWithPartialStacks.clear();
+        sortedWithFullStacks.clear();
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sort the contents of nested containers in a range, on top of the range's own layout
+     * Must run on the main thread; reading a shulker box's contents builds a block state
+     * @param contents Inventory snapshot (never modified)
+     * @param from First slot of the range (inclusive)
+     * @param to Last slot of the range (exclusive)
+     * @param layout Layout about to be written (entries may be replaced), or null if the range is already sorted
+     * @param strategy Sort strategy for the nested contents
+     * @param allowPartialStacks Whether partial stacks are sorted alongside full ones
+     * @return Layout to write, a new one if layout was null and a nested container changed; null if nothing changes
+     */
+    static ItemStack[] apply(ItemStack[] contents, int from, int to, ItemStack[] layout,
+                             SortStrategy strategy, boolean allowPartialStacks) {
+        if (!enabled) {
+            return layout;
+        }
+
+        int[] budget = {maxNestedPerSort};
+        ItemStack[] result = layout;
+        for (int i = 0; i < to - from && budget[0] > 0; i++) {
+            ItemStack item = result != null ? result[i] : contents[from + i];
+            if (SortEngine.isEmpty(item) || !CONTAINER_ITEMS.contains(item.getType())) {
+                continue;
+            }
+            ItemStack sorted = sortContents(item, strategy, allowPartialStacks, 0, budget);
+            if (sorted != null) {
+                if (result == null) {
+                    result = Arrays.copyOfRange(contents, from, to);
+                }
+                result[i] = sorted;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sort the contents of one shulker box or bundle
+     * @return A sorted copy of the item, or null if it was already sorted, isn't a container or the budget ran out
+     */
+    private static ItemStack sortContents(ItemStack item, SortStrategy strategy, boolean allowPartialStacks,
+                                          int depth, int[] budget) {
+        if (depth >= MAX_DEPTH || budget[0] <= 0 || !item.hasItemMeta()) {
+            return null;
+        }
+        Map<Long, SortedItem> cache = allowPartialStacks ? sortedWithPartialStacks : sortedWithFullStacks;
+        // Same item, same contents: no need to sort them again
+        SortedItem cached = cache.get(ItemFingerprint.of(item));
+        if (cached != null && cached.strategy == strategy && cached.item.isSimilar(item)) {
+            return null;
+        }
+        budget[0]--;
+
+        ItemMeta meta = item.getItemMeta();
+        ShulkerBox shulkerBox = null;
+        ItemStack[] nested;
+        if (meta instanceof BlockStateMeta && ((BlockStateMeta) meta).hasBlockState()) {
+            BlockState state = ((BlockStateMeta) meta).getBlockState();
+            if (!(state instanceof ShulkerBox)) {
+                return null;
+            }
+            shulkerBox = (ShulkerBox) state;
+            nested = shulkerBox.getInventory().getContents();
+        } else if (meta instanceof BundleMeta) {
+            nested = ((BundleMeta) meta).getItems().toArray(new ItemStack[0]);
+        } else {
+            return null;
+        }
+
+        ItemStack[] layout = SortEngine.layoutFor(nested, 0, nested.length, strategy, false, allowPartialStacks);
+        for (int i = 0; i < nested.length && budget[0] > 0; i++) {
+            ItemStack child = layout != null ? layout[i] : nested[i];
+            if (SortEngine.isEmpty(child) || !CONTAINER_ITEMS.contains(child.getType())) {
+                continue;
+            }
+            ItemStack sortedChild = sortContents(child, strategy, allowPartialStacks, depth + 1, budget);
+            if (sortedChild != null) {
+                if (layout == null) {
+                    layout = nested.clone();
+                }
+                layout[i] = sortedChild;
+            }
+        }
+
+        if (layout == null) {
+            remember(cache, item, strategy);
+            return null;
+        }
+
+        if (shulkerBox != null) {
+            shulkerBox.getInventory().setContents(layout);
+            ((BlockStateMeta) meta).setBlockState(shulkerBox);
+        } else {
+            List<ItemStack> items = new ArrayList<>(layout.length);
+            for (ItemStack stack : layout) {
+                if (!SortEngine.isEmpty(stack)) {
+                    items.add(stack);
+                }
+            }
+            ((BundleMeta) meta).setItems(items);
+        }
+
+        ItemStack sorted = item.clone();
+        sorted.setItemMeta(meta);
+        remember(cache, sorted, strategy);
+        return sorted;
+    }
+
+    private static void remember(Map<Long, SortedItem> cache, ItemStack item, SortStrategy strategy) {
+        if (cache.size() >= MAX_CACHED_FINGERPRINTS) {
+            cache.clear();
+        }
+        // A copy, since the item may be a live view of an inventory slot
+        cache.put(ItemFingerprint.of(item), new SortedItem(item.clone(), strategy));
+    }
+
+    /**
+     * A nested container known to be sorted
+     */
+    private static final class SortedItem {
+        private final ItemStack item;
+        private final SortStrategy strategy;
+
+        private SortedItem(ItemStack item, SortStrategy strategy) {
+            this.item = item;
+            this.strategy = strategy;
+        }
+    }
+}
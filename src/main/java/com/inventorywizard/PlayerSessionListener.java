@@ -0,0 +1,59 @@
+package com.inventorywizard;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Keeps the player preference cache, bulk sort jobs, auto-sort sessions and storage groups in step with who is online
+ */
+public class PlayerSessionListener implements Listener {
+    
+    private final PlayerSortPreferences preferences;
+    private final BulkSortManager bulkSortManager;
+    private final AutoSortManager autoSortManager;
+    private final StorageGroupManager storageGroupManager;
+    
+    public PlayerSessionListener(InventoryWizardPlugin plugin) {
+        this.preferences = plugin.getPlayerPreferences();
+        this.bulkSortManager = plugin.getBulkSortManager();
+        this.autoSortManager = plugin.getAutoSortManager();
+        this.storageGroupManager = plugin.getStorageGroupManager();
+    }
+    
+    // Runs on a login thread, so the preferences are usually cached before the player ever joins
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            preferences.preloadPlayer(event.getUniqueId());
+        }
+    }
+    
+    // Don't keep preferences for players a later check (ban, whitelist, full server) turned away
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            preferences.unloadPlayer(event.getPlayer().getUniqueId());
+        }
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        // Only if the pre-login load timed out
+        if (!preferences.isLoaded(event.getPlayer().getUniqueId())) {
+            preferences.loadPlayerAsync(event.getPlayer().getUniqueId());
+        }
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        preferences.unloadPlayer(event.getPlayer().getUniqueId());
+        bulkSortManager.cancel(event.getPlayer().getUniqueId());
+        autoSortManager.forget(event.getPlayer().getUniqueId());
+        storageGroupManager.forget(event.getPlayer().getUniqueId());
+    }
+}
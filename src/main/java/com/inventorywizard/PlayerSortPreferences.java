@@ -1,6 +1,21 @@
 package com.inventorywizard;
 
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class PlayerSortPreferences {
     
@@ -21,8 +36,12 @@ public class PlayerSortPreferences {
             return id;
         }
         
+        /**
+         * Get the display name of the strategy this mode maps to (see sort-modes in config.yml)
+         */
         public String getDisplayName() {
-            return displayName;
+            SortStrategy strategy = SortStrategyRegistry.forMode(this);
+            return strategy != null ? strategy.getDisplayName() : displayName;
         }
         
         public static SortMode fromId(int id) {
@@ -40,48 +59,385 @@ public class PlayerSortPreferences {
         }
     }
     
+    // Default write-behind flush interval (5 seconds)
+    private static final long DEFAULT_FLUSH_INTERVAL_TICKS = 100L;
+    // Default time a sort waits for a cold preference load before using DEFAULT
+    private static final long DEFAULT_LOAD_TIMEOUT_MS = 250L;
+    // Default time a connecting player's login thread waits for their preferences
+    private static final long DEFAULT_PRELOGIN_TIMEOUT_MS = 1000L;
+    // Maximum time onDisable waits for queued writes
+    private static final long SHUTDOWN_DRAIN_TIMEOUT_MS = 10000L;
+    
+    private final InventoryWizardPlugin plugin;
     private H2DatabaseManager database;
+    private AsyncPreferenceStore store;
     private boolean useH2 = true;
+    private final long loadTimeoutMs;
+    private final long preLoginTimeoutMs;
+    
+    // Hot-path cache, loaded on join and evicted on quit
+    private final Map<UUID, SortMode> cache = new ConcurrentHashMap<>();
+    // Players whose cached mode has not been written to H2 yet
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    // Auto-sort on close settings, cached and flushed the same way as sort modes
+    private final Map<UUID, Boolean> autoSortCache = new ConcurrentHashMap<>();
+    private final Set<UUID> autoSortDirty = ConcurrentHashMap.newKeySet();
+    // Latest load started per player; unloadPlayer drops it so a load that finishes after the quit is discarded
+    private final Map<UUID, Object> pendingLoads = new ConcurrentHashMap<>();
+    private BukkitTask flushTask;
+    
+    // Cache statistics
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushedEntries = new AtomicLong();
+    private final AtomicLong loadTimeouts = new AtomicLong();
     
     public PlayerSortPreferences(InventoryWizardPlugin plugin) {
+        this.plugin = plugin;
         try {
-            this.database = new H2DatabaseManager(plugin);
+            this.database = new H2DatabaseManager(plugin, plugin.getSortMetrics());
+            this.store = new AsyncPreferenceStore(plugin, database);
             plugin.getLogger().info("Using H2 database for player preferences.");
         } catch (Exception e) {
-            plugin.getLogger().warning("Failed to initialize H2 database, falling back to YAML storage.");
+            plugin.getLogger().warning("Failed to initialize H2 database, preferences will only be kept in memory.");
             this.useH2 = false;
             this.database = null;
+            this.store = null;
         }
+        
+        this.loadTimeoutMs = plugin.getConfig().getLong("preferences.load-timeout-ms", DEFAULT_LOAD_TIMEOUT_MS);
+        this.preLoginTimeoutMs = plugin.getConfig().getLong("preferences.prelogin-timeout-ms", DEFAULT_PRELOGIN_TIMEOUT_MS);
+        long flushInterval = plugin.getConfig().getLong("preferences.flush-interval-ticks", DEFAULT_FLUSH_INTERVAL_TICKS);
+        this.flushTask = plugin.getServer().getScheduler().runTaskTimer(
+            plugin, this::flushDirty, flushInterval, flushInterval);
     }
     
+    /**
+     * Get a player's sort mode without ever blocking on the database
+     * On a cache miss a background load is started and DEFAULT is returned for now
+     * @param player The player
+     * @return Cached mode, or DEFAULT if not loaded yet
+     */
     public SortMode getPlayerSortMode(Player player) {
-        if (useH2 && database != null) {
-            return database.getPlayerSortMode(player);
+        UUID playerId = player.getUniqueId();
+        SortMode cached = cache.get(playerId);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return cached;
         }
-        return SortMode.DEFAULT; // Fallback to default mode
+        
+        cacheMisses.incrementAndGet();
+        loadPlayerAsync(playerId);
+        return SortMode.DEFAULT;
+    }
+    
+    /**
+     * Get a player's sort mode, loading it asynchronously on a cache miss
+     * The future completes with DEFAULT if the database doesn't answer within the load timeout
+     * @param player The player
+     * @return Future with the player's mode
+     */
+    public CompletableFuture<SortMode> getPlayerSortModeAsync(Player player) {
+        UUID playerId = player.getUniqueId();
+        SortMode cached = cache.get(playerId);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        cacheMisses.incrementAndGet();
+        if (!useH2 || store == null) {
+            return CompletableFuture.completedFuture(SortMode.DEFAULT);
+        }
+        
+        CompletableFuture<SortMode> load = loadPlayerAsync(playerId);
+        // Separate copy so a timeout doesn't stop the real result from being cached
+        return load.copy()
+            .exceptionally(e -> SortMode.DEFAULT)
+            .completeOnTimeout(SortMode.DEFAULT, loadTimeoutMs, TimeUnit.MILLISECONDS)
+            .whenComplete((mode, error) -> {
+                if (!load.isDone()) {
+                    loadTimeouts.incrementAndGet();
+                }
+            });
+    }
+    
+    /**
+     * Run an action with the player's sort mode on the main thread
+     * Runs immediately on a cache hit, otherwise once the load finishes or times out
+     * @param player The player
+     * @param action Action to run with the mode
+     */
+    public void withPlayerSortMode(Player player, Consumer<SortMode> action) {
+        CompletableFuture<SortMode> future = getPlayerSortModeAsync(player);
+        if (future.isDone() || store == null) {
+            action.accept(future.getNow(SortMode.DEFAULT));
+            return;
+        }
+        store.deliverOnMainThread(future, mode -> {
+            if (player.isOnline()) {
+                action.accept(mode != null ? mode : SortMode.DEFAULT);
+            }
+        });
     }
     
     public void setPlayerSortMode(Player player, SortMode mode) {
-        if (useH2 && database != null) {
-            database.setPlayerSortMode(player, mode);
+        UUID playerId = player.getUniqueId();
+        cache.put(playerId, mode);
+        // Persisted by the next write-behind flush
+        dirty.add(playerId);
+    }
+    
+    /**
+     * Cycle a player's sort mode, waiting (with timeout) for a cold load first
+     * @param player The player
+     * @param action Action run on the main thread with the new mode
+     */
+    public void cyclePlayerSortMode(Player player, Consumer<SortMode> action) {
+        withPlayerSortMode(player, currentMode -> {
+            SortMode nextMode = currentMode.next();
+            setPlayerSortMode(player, nextMode);
+            action.accept(nextMode);
+        });
+    }
+    
+    /**
+     * Check whether a player has auto-sort on container close enabled, without blocking on the database
+     * @param player The player
+     * @return Cached setting, or false if not loaded yet
+     */
+    public boolean isAutoSortEnabled(Player player) {
+        Boolean cached = autoSortCache.get(player.getUniqueId());
+        return cached != null && cached;
+    }
+    
+    /**
+     * Toggle a player's auto-sort setting, waiting (with timeout) for a cold load first
+     * @param player The player
+     * @param action Action run on the main thread with the new setting
+     */
+    public void toggleAutoSort(Player player, Consumer<Boolean> action) {
+        UUID playerId = player.getUniqueId();
+        CompletableFuture<Boolean> current = autoSortCache.containsKey(playerId) || !useH2 || store == null
+            ? CompletableFuture.completedFuture(isAutoSortEnabled(player))
+            : loadPlayersAsync(Collections.singleton(playerId))
+                .thenApply(ignored -> autoSortCache.getOrDefault(playerId, false))
+                .exceptionally(e -> false)
+                .completeOnTimeout(false, loadTimeoutMs, TimeUnit.MILLISECONDS);
+        
+        Consumer<Boolean> toggle = enabled -> {
+            boolean next = !(enabled != null && enabled);
+            autoSortCache.put(playerId, next);
+            autoSortDirty.add(playerId);
+            action.accept(next);
+        };
+        if (current.isDone() || store == null) {
+            toggle.accept(current.getNow(false));
+            return;
         }
-        // In fallback mode, we don't persist preferences
+        store.deliverOnMainThread(current, enabled -> {
+            if (player.isOnline()) {
+                toggle.accept(enabled);
+            }
+        });
+    }
+    
+    /**
+     * Load a player's preference into the cache without blocking the server thread
+     * @param playerId The player who joined
+     * @return Future with the stored mode
+     */
+    public CompletableFuture<SortMode> loadPlayerAsync(UUID playerId) {
+        return loadPlayersAsync(Collections.singleton(playerId))
+            .thenApply(ignored -> cache.getOrDefault(playerId, SortMode.DEFAULT));
     }
     
-    public SortMode cyclePlayerSortMode(Player player) {
-        if (useH2 && database != null) {
-            return database.cyclePlayerSortMode(player);
+    /**
+     * Load many players' preferences into the cache with one bulk query
+     * Players without a stored row are cached with the defaults so they never cause a miss later
+     * @param playerIds Players to load
+     * @return Future completed once the cache has been filled
+     */
+    public CompletableFuture<Void> loadPlayersAsync(Collection<UUID> playerIds) {
+        if (!useH2 || store == null || playerIds.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
         }
-        // In fallback mode, just cycle through modes without persistence
-        return SortMode.DEFAULT;
+        Object load = new Object();
+        for (UUID playerId : playerIds) {
+            pendingLoads.put(playerId, load);
+        }
+        return store.getPlayerPreferences(playerIds).thenAccept(found -> {
+            for (UUID playerId : playerIds) {
+                H2DatabaseManager.StoredPreferences stored = found.get(playerId);
+                // Runs under the entry's lock, so unloadPlayer either sees the insert or makes this skip it
+                pendingLoads.computeIfPresent(playerId, (id, latest) -> {
+                    if (latest != load) {
+                        // A newer load for the same player will fill the cache
+                        return latest;
+                    }
+                    // Never overwrite a setting the player changed while the load was in flight
+                    cache.putIfAbsent(playerId, stored != null ? stored.getSortMode() : SortMode.DEFAULT);
+                    autoSortCache.putIfAbsent(playerId, stored != null && stored.isAutoSort());
+                    return null;
+                });
+            }
+        });
+    }
+    
+    /**
+     * Load a connecting player's preferences and wait (with timeout) for them to be cached
+     * Only call this from an async login thread, never from the server thread
+     * @param playerId The connecting player
+     * @return True if the preferences were cached in time
+     */
+    public boolean preloadPlayer(UUID playerId) {
+        if (isLoaded(playerId)) {
+            return true;
+        }
+        try {
+            loadPlayersAsync(Collections.singleton(playerId)).get(preLoginTimeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // The join falls back to a background load
+            loadTimeouts.incrementAndGet();
+        }
+        return false;
+    }
+    
+    /**
+     * Check whether a player's preferences are already cached
+     * @param playerId The player's UUID
+     * @return True if both the sort mode and auto-sort setting are cached
+     */
+    public boolean isLoaded(UUID playerId) {
+        return cache.containsKey(playerId) && autoSortCache.containsKey(playerId);
+    }
+    
+    /**
+     * Flush a leaving player's pending change and evict them from the cache
+     * @param playerId The player who quit
+     */
+    public void unloadPlayer(UUID playerId) {
+        // First, so a load still in flight can't cache the player again after the eviction below
+        pendingLoads.remove(playerId);
+        SortMode mode = cache.remove(playerId);
+        if (mode != null && dirty.remove(playerId) && useH2 && store != null) {
+            store.setPlayerSortMode(playerId, mode)
+                .thenRun(flushedEntries::incrementAndGet);
+        }
+        
+        Boolean autoSort = autoSortCache.remove(playerId);
+        if (autoSort != null && autoSortDirty.remove(playerId) && useH2 && store != null) {
+            store.setPlayerAutoSorts(Collections.singletonMap(playerId, autoSort))
+                .thenRun(flushedEntries::incrementAndGet);
+        }
+    }
+    
+    /**
+     * Queue all dirty cache entries for writing to H2 in one batch
+     */
+    public void flushDirty() {
+        flushDirtyAutoSorts();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        
+        Map<UUID, SortMode> batch = new HashMap<>();
+        for (UUID playerId : dirty) {
+            // Remove before reading so a concurrent change is re-marked and flushed next time
+            dirty.remove(playerId);
+            SortMode mode = cache.get(playerId);
+            if (mode != null) {
+                batch.put(playerId, mode);
+            }
+        }
+        
+        if (batch.isEmpty() || !useH2 || store == null) {
+            return;
+        }
+        
+        store.setPlayerSortModes(batch).thenRun(() -> {
+            flushCount.incrementAndGet();
+            flushedEntries.addAndGet(batch.size());
+        });
+    }
+    
+    private void flushDirtyAutoSorts() {
+        if (autoSortDirty.isEmpty()) {
+            return;
+        }
+        
+        Map<UUID, Boolean> batch = new HashMap<>();
+        for (UUID playerId : autoSortDirty) {
+            autoSortDirty.remove(playerId);
+            Boolean enabled = autoSortCache.get(playerId);
+            if (enabled != null) {
+                batch.put(playerId, enabled);
+            }
+        }
+        
+        if (batch.isEmpty() || !useH2 || store == null) {
+            return;
+        }
+        
+        store.setPlayerAutoSorts(batch).thenRun(() -> {
+            flushCount.incrementAndGet();
+            flushedEntries.addAndGet(batch.size());
+        });
     }
     
     public void close() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        
+        // Drain pending writes before the connection goes away
+        flushDirty();
+        if (store != null) {
+            store.shutdown(SHUTDOWN_DRAIN_TIMEOUT_MS);
+        }
+        
         if (database != null) {
             database.close();
         }
     }
     
+    /**
+     * Get the persistence layer, shared with storage groups
+     * @return The store, or null if preferences are only kept in memory
+     */
+    AsyncPreferenceStore getStore() {
+        return store;
+    }
+    
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+    
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+    
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+    
+    public long getFlushedEntries() {
+        return flushedEntries.get();
+    }
+    
+    public long getLoadTimeouts() {
+        return loadTimeouts.get();
+    }
+    
+    public int getPendingWrites() {
+        return dirty.size() + autoSortDirty.size();
+    }
+    
     /**
      * Check if the database is using secure credentials
      */
@@ -1,106 +1,209 @@
 package com.inventorywizard;
 
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Rate limiter to prevent resource exhaustion attacks
- * Limits sorting operations per player to prevent spam
+ * Limits sorting operations per player with a lock-free token bucket plus a minimum interval
+ * A token stands for one main inventory sort: tryAcquire takes one up front and settleCost later
+ * corrects the charge to what the sort measurably cost
+ * While the server is under load ServerLoadMonitor scales the configured limits through setLoadFactors
  */
 public class RateLimiter {
-    
-    private final Map<UUID, Long> lastSortTime = new ConcurrentHashMap<>();
-    private final Map<UUID, Integer> sortCount = new ConcurrentHashMap<>();
-    
-    // Configuration
-    private static final long MIN_SORT_INTERVAL_MS = 10000; // 10 seconds between sorts
-    private static final int MAX_SORTS_PER_MINUTE = 10; // Max 10 sorts per minute
-    private static final long RESET_INTERVAL_MS = 60000; // Reset counter every minute
-    private static final long MAX_SORT_DURATION_MS = 5000; // Max 5 seconds per sort operation
-    
-    /**
-     * Check if a player can perform a sort operation
+
+    // Defaults used when config.yml doesn't override them
+    private static final long DEFAULT_MIN_SORT_INTERVAL_MS = 10000; // 10 seconds between sorts
+    private static final int DEFAULT_MAX_SORTS_PER_MINUTE = 10; // Bucket capacity, refilled over a minute
+    private static final long DEFAULT_MAX_SORT_DURATION_MS = 5000; // Max 5 seconds per sort operation
+    private static final long DEFAULT_IDLE_EXPIRY_MS = 5 * 60000; // Forget players idle for 5 minutes
+    private static final long REFILL_WINDOW_MS = 60000;
+    private static final long SWEEP_INTERVAL_TICKS = 20L * 60; // Sweep idle entries once a minute
+    // Bounds on what a single sort is charged, in tokens
+    private static final double MIN_SORT_COST = 0.25;
+    private static final double MAX_SORT_COST = 5.0;
+
+    // Packed bucket state: upper 24 bits hold milli-tokens, lower 40 bits the last sort time
+    // (ms since epoch + 1, 0 = never sorted)
+    private static final long TOKEN = 1000;
+    private static final int TIME_BITS = 40;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final long MAX_MILLI_TOKENS = (1L << (Long.SIZE - TIME_BITS)) - 1;
+
+    private final Map<UUID, PlayerBucket> buckets = new ConcurrentHashMap<>();
+    // Time base for the packed timestamps
+    private final long epoch = System.currentTimeMillis();
+
+    private volatile long minSortIntervalMs = DEFAULT_MIN_SORT_INTERVAL_MS;
+    private volatile int maxSortsPerMinute = DEFAULT_MAX_SORTS_PER_MINUTE;
+    private volatile long maxSortDurationMs = DEFAULT_MAX_SORT_DURATION_MS;
+    private volatile long idleExpiryMs = DEFAULT_IDLE_EXPIRY_MS;
+    // Set by ServerLoadMonitor; 1.0 = the configured limits apply unchanged
+    private volatile double intervalFactor = 1.0;
+    private volatile double rateFactor = 1.0;
+
+    private BukkitTask sweepTask;
+
+    public RateLimiter(Plugin plugin) {
+        loadLimits(plugin.getConfig().getConfigurationSection("rate-limit"));
+        // Expire idle entries in the background instead of on every recorded sort
+        this.sweepTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(
+            plugin, this::sweepIdleEntries, SWEEP_INTERVAL_TICKS, SWEEP_INTERVAL_TICKS);
+    }
+
+    /**
+     * Load limits from the rate-limit section of config.yml
+     * @param section The configuration section (null keeps the defaults)
+     */
+    public void loadLimits(ConfigurationSection section) {
+        if (section == null) {
+            return;
+        }
+        minSortIntervalMs = Math.max(0, section.getLong("min-interval-ms", DEFAULT_MIN_SORT_INTERVAL_MS));
+        maxSortsPerMinute = Math.max(1, section.getInt("max-sorts-per-minute", DEFAULT_MAX_SORTS_PER_MINUTE));
+        maxSortDurationMs = Math.max(1, section.getLong("max-sort-duration-ms", DEFAULT_MAX_SORT_DURATION_MS));
+        idleExpiryMs = Math.max(REFILL_WINDOW_MS, section.getLong("idle-expiry-ms", DEFAULT_IDLE_EXPIRY_MS));
+    }
+
+    /**
+     * Scale the configured limits to the server's current load
+     * @param intervalFactor Multiplier for the minimum interval between sorts (at least 1)
+     * @param rateFactor Multiplier for the sorts allowed per minute (0 to 1)
+     */
+    public void setLoadFactors(double intervalFactor, double rateFactor) {
+        this.intervalFactor = Math.max(1.0, intervalFactor);
+        this.rateFactor = Math.min(1.0, Math.max(0.0, rateFactor));
+    }
+
+    /**
+     * Stop the background sweep
+     */
+    public void shutdown() {
+        if (sweepTask != null) {
+            sweepTask.cancel();
+            sweepTask = null;
+        }
+    }
+
+    /**
+     * Replace the flat one-token charges recorded for a finished sort with its measured cost
+     * Cheap sorts (a hotbar, a half-empty chest) get part of their tokens back, expensive ones are charged extra
+     * @param playerId The player the sort was charged to
+     * @param sortEquivalents Measured cost in main inventory sorts (see SortCostModel)
+     * @param chargedSorts Number of tokens tryAcquire took for the sort
+     */
+    public void settleCost(UUID playerId, double sortEquivalents, int chargedSorts) {
+        PlayerBucket bucket = buckets.get(playerId);
+        if (bucket == null || chargedSorts <= 0) {
+            return;
+        }
+
+        long cost = Math.round(Math.min(MAX_SORT_COST, Math.max(MIN_SORT_COST, sortEquivalents)) * TOKEN);
+        long adjustment = cost - (long) chargedSorts * TOKEN;
+        long capacity = Math.min((long) getMaxSortsPerMinute() * TOKEN, MAX_MILLI_TOKENS);
+
+        while (true) {
+            long state = bucket.state.get();
+            // The refill is computed from the last sort time, which is kept as it is
+            long tokens = Math.min(capacity, Math.max(0, (state >>> TIME_BITS) - adjustment));
+            if (bucket.state.compareAndSet(state, pack(tokens, state & TIME_MASK))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Give back the token tryAcquire took for a request that didn't start a sort of its own
+     * @param playerId The player who was charged
+     */
+    public void refund(UUID playerId) {
+        PlayerBucket bucket = buckets.get(playerId);
+        if (bucket == null) {
+            return;
+        }
+
+        long capacity = Math.min((long) getMaxSortsPerMinute() * TOKEN, MAX_MILLI_TOKENS);
+        while (true) {
+            long state = bucket.state.get();
+            long tokens = Math.min(capacity, (state >>> TIME_BITS) + TOKEN);
+            if (bucket.state.compareAndSet(state, pack(tokens, state & TIME_MASK))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Atomically check and consume a token in one step
      * @param player The player attempting to sort
-     * @return true if allowed, false if rate limited
+     * @return true if the sort is allowed and has been recorded
      */
-    public boolean canSort(Player player) {
+    public boolean tryAcquire(Player player) {
         if (player == null) {
             return false;
         }
-        
-        UUID playerId = player.getUniqueId();
-        long currentTime = System.currentTimeMillis();
-        
-        // Check minimum interval between sorts
-        Long lastSort = lastSortTime.get(playerId);
-        if (lastSort != null) {
-            long timeSinceLastSort = currentTime - lastSort;
-            if (timeSinceLastSort < MIN_SORT_INTERVAL_MS) {
+
+        PlayerBucket bucket = buckets.computeIfAbsent(player.getUniqueId(), id -> new PlayerBucket(getMaxSortsPerMinute()));
+        long now = now();
+
+        while (true) {
+            long state = bucket.state.get();
+            if (timeSinceLastSort(state, now) < getMinSortIntervalMs()) {
                 return false;
             }
-        }
-        
-        // Check sort count per minute
-        Integer count = sortCount.get(playerId);
-        if (count != null && count >= MAX_SORTS_PER_MINUTE) {
-            // Check if we should reset the counter (if more than a minute has passed)
-            if (lastSort != null && (currentTime - lastSort) > RESET_INTERVAL_MS) {
-                // Reset the counter for the new minute
-                sortCount.put(playerId, 0);
+            long tokens = refilledTokens(state, now);
+            if (tokens < TOKEN) {
+                return false;
+            }
+            if (bucket.state.compareAndSet(state, pack(tokens - TOKEN, now))) {
                 return true;
             }
-            return false;
         }
-        
-        return true;
     }
-    
+
     /**
-     * Record a sort operation for rate limiting
-     * @param player The player who performed the sort
+     * Charge one more step of a job the player already started with tryAcquire (a container of an area sort)
+     * Skips the minimum interval, but only succeeds while the bucket still holds the full cost
+     * @param playerId The player the job belongs to
+     * @param sortEquivalents Cost of the step in main inventory sorts (see SortCostModel)
+     * @return true if the cost was taken
      */
-    public void recordSort(Player player) {
-        if (player == null) {
-            return;
+    public boolean tryCharge(UUID playerId, double sortEquivalents) {
+        PlayerBucket bucket = buckets.get(playerId);
+        if (bucket == null) {
+            return false;
         }
-        
-        UUID playerId = player.getUniqueId();
-        long currentTime = System.currentTimeMillis();
-        
-        // Update last sort time
-        lastSortTime.put(playerId, currentTime);
-        
-        // Update sort count
-        Integer count = sortCount.get(playerId);
-        if (count == null) {
-            sortCount.put(playerId, 1);
-        } else {
-            sortCount.put(playerId, count + 1);
-        }
-        
-        // Clean up old entries to prevent memory leaks
-        cleanupOldEntries(currentTime);
-    }
-    
-    /**
-     * Clean up old rate limiting entries to prevent memory leaks
-     * @param currentTime Current timestamp
-     */
-    private void cleanupOldEntries(long currentTime) {
-        // Remove entries older than 5 minutes
-        long cutoffTime = currentTime - (5 * 60000);
-        
-        lastSortTime.entrySet().removeIf(entry -> entry.getValue() < cutoffTime);
-        sortCount.entrySet().removeIf(entry -> {
-            UUID playerId = entry.getKey();
-            Long lastSort = lastSortTime.get(playerId);
-            return lastSort == null || lastSort < cutoffTime;
-        });
-    }
-    
+
+        long cost = Math.round(Math.min(MAX_SORT_COST, Math.max(MIN_SORT_COST, sortEquivalents)) * TOKEN);
+        long now = now();
+
+        while (true) {
+            long state = bucket.state.get();
+            long tokens = refilledTokens(state, now);
+            if (tokens < cost) {
+                return false;
+            }
+            if (bucket.state.compareAndSet(state, pack(tokens - cost, now))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Remove entries for players who haven't sorted recently (runs off the hot path)
+     */
+    public void sweepIdleEntries() {
+        long now = now();
+        long expiry = idleExpiryMs;
+        buckets.values().removeIf(bucket -> timeSinceLastSort(bucket.state.get(), now) > expiry);
+    }
+
     /**
      * Get the time remaining before a player can sort again
      * @param player The player to check
@@ -110,56 +213,81 @@ public class RateLimiter {
         if (player == null) {
             return 0;
         }
-        
-        UUID playerId = player.getUniqueId();
-        Long lastSort = lastSortTime.get(playerId);
-        
-        if (lastSort == null) {
+
+        PlayerBucket bucket = buckets.get(player.getUniqueId());
+        if (bucket == null) {
             return 0;
         }
-        
-        long timeSinceLastSort = System.currentTimeMillis() - lastSort;
-        long remaining = MIN_SORT_INTERVAL_MS - timeSinceLastSort;
-        
-        return Math.max(0, remaining);
+
+        long now = now();
+        long state = bucket.state.get();
+        long intervalRemaining = getMinSortIntervalMs() - timeSinceLastSort(state, now);
+
+        long tokens = refilledTokens(state, now);
+        long refillRemaining = 0;
+        if (tokens < TOKEN) {
+            // Milli-tokens refill at getMaxSortsPerMinute() * TOKEN per REFILL_WINDOW_MS
+            long missing = TOKEN - tokens;
+            long perWindow = (long) getMaxSortsPerMinute() * TOKEN;
+            refillRemaining = (missing * REFILL_WINDOW_MS + perWindow - 1) / perWindow;
+        }
+
+        return Math.max(0, Math.max(intervalRemaining, refillRemaining));
     }
-    
+
     /**
      * Get the number of sorts remaining for a player this minute
      * @param player The player to check
-     * @return Number of sorts remaining, or MAX_SORTS_PER_MINUTE if unlimited
+     * @return Number of sorts remaining, or the bucket capacity if unused
      */
     public int getSortsRemaining(Player player) {
         if (player == null) {
             return 0;
         }
-        
-        UUID playerId = player.getUniqueId();
-        Integer count = sortCount.get(playerId);
-        
-        if (count == null) {
-            return MAX_SORTS_PER_MINUTE;
+
+        PlayerBucket bucket = buckets.get(player.getUniqueId());
+        if (bucket == null) {
+            return getMaxSortsPerMinute();
         }
-        
-        return Math.max(0, MAX_SORTS_PER_MINUTE - count);
+
+        return (int) (refilledTokens(bucket.state.get(), now()) / TOKEN);
     }
-    
+
     /**
      * Get the current sort count for a player this minute
      * @param player The player to check
-     * @return Number of sorts used this minute
+     * @return Number of sorts used (tokens missing from the bucket)
      */
     public int getCurrentSortCount(Player player) {
         if (player == null) {
             return 0;
         }
-        
-        UUID playerId = player.getUniqueId();
-        Integer count = sortCount.get(playerId);
-        
-        return count != null ? count : 0;
+
+        return Math.max(0, getMaxSortsPerMinute() - getSortsRemaining(player));
+    }
+
+    /**
+     * Get the sorts allowed per minute under the current server load
+     */
+    public int getMaxSortsPerMinute() {
+        return Math.max(1, (int) (maxSortsPerMinute * rateFactor));
     }
-    
+
+    /**
+     * Get the minimum interval between sorts under the current server load
+     */
+    public long getMinSortIntervalMs() {
+        return (long) (minSortIntervalMs * intervalFactor);
+    }
+
+    public int getConfiguredMaxSortsPerMinute() {
+        return maxSortsPerMinute;
+    }
+
+    public long getConfiguredMinSortIntervalMs() {
+        return minSortIntervalMs;
+    }
+
     /**
      * Reset rate limiting for a specific player (admin function)
      * @param player The player to reset
@@ -168,12 +296,10 @@ public class RateLimiter {
         if (player == null) {
             return;
         }
-        
-        UUID playerId = player.getUniqueId();
-        lastSortTime.remove(playerId);
-        sortCount.remove(playerId);
+
+        buckets.remove(player.getUniqueId());
     }
-    
+
     /**
      * Get rate limiting statistics for a player
      * @param player The player to get stats for
@@ -183,29 +309,70 @@ public class RateLimiter {
         if (player == null) {
             return "Invalid player";
         }
-        
-        UUID playerId = player.getUniqueId();
-        Integer count = sortCount.get(playerId);
-        
+
         long timeUntilNext = getTimeUntilNextSort(player);
         int sortsRemaining = getSortsRemaining(player);
-        
+
         StringBuilder stats = new StringBuilder();
         stats.append("Rate Limiting Stats for ").append(player.getName()).append(":\n");
         stats.append("Time until next sort: ").append(timeUntilNext).append("ms\n");
         stats.append("Sorts remaining this minute: ").append(sortsRemaining).append("\n");
-        stats.append("Total sorts this minute: ").append(count != null ? count : 0);
-        
+        stats.append("Total sorts this minute: ").append(getCurrentSortCount(player)).append("\n");
+        stats.append("Limits: ").append(getMaxSortsPerMinute()).append(" sorts/minute, ")
+             .append(getMinSortIntervalMs()).append("ms between sorts");
+        if (intervalFactor != 1.0 || rateFactor != 1.0) {
+            stats.append(" (configured ").append(maxSortsPerMinute).append(" sorts/minute, ")
+                 .append(minSortIntervalMs).append("ms)");
+        }
+        stats.append("\n");
+        stats.append("Sorts are charged by measured cost (1 = one inventory sort)");
+
         return stats.toString();
     }
-    
+
     /**
-     * Check if a sort operation is taking too long (potential DoS)
-     * @param startTime The time when the sort operation started
-     * @return true if the operation is taking too long
+     * Check if a measured sort duration exceeds the configured maximum
+     * @param elapsedNanos Time the sort took
+     * @return true if the operation took too long
      */
-    public boolean isSortTakingTooLong(long startTime) {
-        long currentTime = System.currentTimeMillis();
-        return (currentTime - startTime) > MAX_SORT_DURATION_MS;
+    public boolean isSortDurationTooLong(long elapsedNanos) {
+        return elapsedNanos > maxSortDurationMs * 1_000_000L;
+    }
+
+    private long now() {
+        return System.currentTimeMillis() - epoch + 1;
+    }
+
+    private static long pack(long milliTokens, long time) {
+        return (Math.min(milliTokens, MAX_MILLI_TOKENS) << TIME_BITS) | (time & TIME_MASK);
+    }
+
+    private static long timeSinceLastSort(long state, long now) {
+        long lastSort = state & TIME_MASK;
+        return lastSort == 0 ? Long.MAX_VALUE : now - lastSort;
+    }
+
+    private long refilledTokens(long state, long now) {
+        long tokens = state >>> TIME_BITS;
+        int sortsPerMinute = getMaxSortsPerMinute();
+        long capacity = Math.min((long) sortsPerMinute * TOKEN, MAX_MILLI_TOKENS);
+        long lastSort = state & TIME_MASK;
+        if (lastSort == 0) {
+            return capacity;
+        }
+        long elapsed = Math.max(0, now - lastSort);
+        long refill = elapsed >= REFILL_WINDOW_MS ? capacity : elapsed * sortsPerMinute * TOKEN / REFILL_WINDOW_MS;
+        return Math.min(capacity, tokens + refill);
+    }
+
+    /**
+     * Per-player bucket; all updates are CAS operations on one packed long
+     */
+    private static final class PlayerBucket {
+        private final AtomicLong state;
+
+        private PlayerBucket(int capacity) {
+            this.state = new AtomicLong(pack((long) capacity * TOKEN, 0));
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+package com.inventorywizard;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Versioned schema for the preferences database
+ * Applied migrations are recorded in schema_version; each step runs at most once, in order
+ * H2 commits DDL immediately, so every step is written to be safe to re-run if it was interrupted
+ */
+final class SchemaMigrations {
+
+    private static final List<Migration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+        new Migration(1, "create player_preferences",
+            "CREATE TABLE IF NOT EXISTS player_preferences (" +
+                "uuid VARCHAR(36) PRIMARY KEY, " +
+                "sort_mode INT DEFAULT 0, " +
+                "last_updated BIGINT DEFAULT 0)"),
+        new Migration(2, "add auto_sort",
+            "ALTER TABLE player_preferences ADD COLUMN IF NOT EXISTS auto_sort BOOLEAN DEFAULT FALSE"),
+        // Native 16-byte UUID keys instead of 36-character strings: a smaller primary key index and cheaper lookups
+        new Migration(3, "store uuid as UUID",
+            "ALTER TABLE player_preferences ALTER COLUMN uuid SET DATA TYPE UUID"),
+        new Migration(4, "create storage_group_members",
+            "CREATE TABLE IF NOT EXISTS storage_group_members (" +
+                "owner UUID NOT NULL, " +
+                "group_name VARCHAR(32) NOT NULL, " +
+                "world UUID NOT NULL, " +
+                "x INT NOT NULL, " +
+                "y INT NOT NULL, " +
+                "z INT NOT NULL, " +
+                "linked_at BIGINT DEFAULT 0, " +
+                // A container belongs to at most one of a player's groups
+                "PRIMARY KEY (owner, world, x, y, z))"),
+        // Broken containers are unlinked from every owner's groups by position alone
+        new Migration(5, "index storage_group_members by position",
+            "CREATE INDEX IF NOT EXISTS storage_group_members_position ON storage_group_members (world, x, y, z)")
+    ));
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Get the schema version this build expects
+     */
+    static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * Bring the schema up to date
+     * @param connection Open connection (must not be used by anyone else meanwhile)
+     * @param logger Logger for applied steps
+     * @return Schema version after migrating
+     * @throws SQLException If a step fails; steps before it stay applied
+     */
+    static int migrate(Connection connection, Logger logger) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                "version INT PRIMARY KEY, " +
+                "description VARCHAR(128), " +
+                "applied_at BIGINT)");
+        }
+
+        int current = getCurrentVersion(connection);
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= current) {
+                continue;
+            }
+            apply(connection, migration);
+            current = migration.version;
+            logger.info("Applied database migration " + migration.version + " (" + migration.description + ")");
+        }
+        return current;
+    }
+
+    private static int getCurrentVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void apply(Connection connection, Migration migration) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            try (Statement stmt = connection.createStatement()) {
+                for (String sql : migration.statements) {
+                    stmt.execute(sql);
+                }
+            }
+            try (PreparedStatement record = connection.prepareStatement(
+                    "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)")) {
+                record.setInt(1, migration.version);
+                record.setString(2, migration.description);
+                record.setLong(3, System.currentTimeMillis());
+                record.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * One schema step
+     */
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final String[] statements;
+
+        private Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.inventorywizard;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Watches server tick times and throttles sorting while the server is struggling
+ * Paper's average tick time (MSPT) and one-minute TPS are sampled periodically. Above the elevated or critical
+ * thresholds the rate limits are tightened and, at the critical level, bulk, group and auto-sorts are paused.
+ * Load levels rise as soon as a sample crosses a threshold but only drop again after several samples in a row
+ * are comfortably below it, so limits don't flap around a threshold
+ */
+public class ServerLoadMonitor {
+
+    // Defaults used when config.yml doesn't override them
+    private static final boolean DEFAULT_ENABLED = true;
+    private static final long DEFAULT_SAMPLE_INTERVAL_TICKS = 20L;
+    private static final double DEFAULT_ELEVATED_MSPT = 40.0;
+    private static final double DEFAULT_CRITICAL_MSPT = 50.0;
+    private static final double DEFAULT_CRITICAL_TPS = 18.0;
+    private static final int DEFAULT_RECOVERY_SAMPLES = 5;
+    private static final double DEFAULT_ELEVATED_INTERVAL_MULTIPLIER = 2.0;
+    private static final double DEFAULT_ELEVATED_RATE_MULTIPLIER = 0.5;
+    private static final double DEFAULT_CRITICAL_INTERVAL_MULTIPLIER = 4.0;
+    private static final double DEFAULT_CRITICAL_RATE_MULTIPLIER = 0.25;
+    // A level is only left once MSPT is this far below its threshold
+    private static final double RECOVERY_MARGIN = 0.9;
+
+    public enum LoadLevel {
+        NORMAL("normal"),
+        ELEVATED("elevated"),
+        CRITICAL("critical");
+
+        private final String displayName;
+
+        LoadLevel(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private final InventoryWizardPlugin plugin;
+
+    private boolean enabled;
+    private double elevatedMspt;
+    private double criticalMspt;
+    private double criticalTps;
+    private int recoverySamples;
+    private double elevatedIntervalMultiplier;
+    private double elevatedRateMultiplier;
+    private double criticalIntervalMultiplier;
+    private double criticalRateMultiplier;
+
+    private LoadLevel level = LoadLevel.NORMAL;
+    // Samples in a row that would allow dropping to a lower level
+    private int calmSamples;
+    private double lastMspt;
+    private double lastTps = 20.0;
+    private BukkitTask task;
+
+    public ServerLoadMonitor(InventoryWizardPlugin plugin) {
+        this.plugin = plugin;
+        configure(plugin.getConfig().getConfigurationSection("adaptive-throttle"));
+    }
+
+    /**
+     * Load thresholds and multipliers from the adaptive-throttle section of config.yml and restart sampling
+     * @param section The configuration section (null uses the defaults)
+     */
+    public void configure(ConfigurationSection section) {
+        long sampleIntervalTicks = DEFAULT_SAMPLE_INTERVAL_TICKS;
+        enabled = DEFAULT_ENABLED;
+        elevatedMspt = DEFAULT_ELEVATED_MSPT;
+        criticalMspt = DEFAULT_CRITICAL_MSPT;
+        criticalTps = DEFAULT_CRITICAL_TPS;
+        recoverySamples = DEFAULT_RECOVERY_SAMPLES;
+        elevatedIntervalMultiplier = DEFAULT_ELEVATED_INTERVAL_MULTIPLIER;
+        elevatedRateMultiplier = DEFAULT_ELEVATED_RATE_MULTIPLIER;
+        criticalIntervalMultiplier = DEFAULT_CRITICAL_INTERVAL_MULTIPLIER;
+        criticalRateMultiplier = DEFAULT_CRITICAL_RATE_MULTIPLIER;
+
+        if (section != null) {
+            enabled = section.getBoolean("enabled", DEFAULT_ENABLED);
+            sampleIntervalTicks = Math.max(1L, section.getLong("sample-interval-ticks", DEFAULT_SAMPLE_INTERVAL_TICKS));
+            elevatedMspt = Math.max(1.0, section.getDouble("elevated-mspt", DEFAULT_ELEVATED_MSPT));
+            criticalMspt = Math.max(elevatedMspt, section.getDouble("critical-mspt", DEFAULT_CRITICAL_MSPT));
+            criticalTps = Math.max(0.0, section.getDouble("critical-tps", DEFAULT_CRITICAL_TPS));
+            recoverySamples = Math.max(1, section.getInt("recovery-samples", DEFAULT_RECOVERY_SAMPLES));
+            elevatedIntervalMultiplier = section.getDouble("elevated.interval-multiplier", DEFAULT_ELEVATED_INTERVAL_MULTIPLIER);
+            elevatedRateMultiplier = section.getDouble("elevated.rate-multiplier", DEFAULT_ELEVATED_RATE_MULTIPLIER);
+            criticalIntervalMultiplier = section.getDouble("critical.interval-multiplier", DEFAULT_CRITICAL_INTERVAL_MULTIPLIER);
+            criticalRateMultiplier = section.getDouble("critical.rate-multiplier", DEFAULT_CRITICAL_RATE_MULTIPLIER);
+        }
+
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        if (enabled) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::sample, sampleIntervalTicks, sampleIntervalTicks);
+        } else {
+            level = LoadLevel.NORMAL;
+        }
+        calmSamples = 0;
+        applyLevel();
+    }
+
+    public LoadLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Check whether bulk, group and auto-sorts should wait for the server to recover
+     */
+    public boolean isDeferringBackgroundSorts() {
+        return level == LoadLevel.CRITICAL;
+    }
+
+    /**
+     * Describe the current load and the throttling it causes, for /iwiz rate-limit
+     * @return One line of status text
+     */
+    public String getStatus() {
+        if (!enabled) {
+            return "Adaptive throttling: disabled";
+        }
+        String status = String.format("Server load: %s (%.1f MSPT, %.1f TPS)", level.getDisplayName(), lastMspt, lastTps);
+        if (isDeferringBackgroundSorts()) {
+            status += ", area, group and auto-sorts paused";
+        }
+        return status;
+    }
+
+    public void shutdown() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        level = LoadLevel.NORMAL;
+        plugin.getRateLimiter().setLoadFactors(1.0, 1.0);
+    }
+
+    private void sample() {
+        lastMspt = plugin.getServer().getAverageTickTime();
+        double[] tps = plugin.getServer().getTPS();
+        lastTps = tps != null && tps.length > 0 ? tps[0] : 20.0;
+
+        LoadLevel measured = LoadLevel.NORMAL;
+        if (lastMspt >= criticalMspt || lastTps < criticalTps) {
+            measured = LoadLevel.CRITICAL;
+        } else if (lastMspt >= elevatedMspt) {
+            measured = LoadLevel.ELEVATED;
+        }
+
+        if (measured.ordinal() >= level.ordinal()) {
+            calmSamples = 0;
+            if (measured != level) {
+                level = measured;
+                applyLevel();
+                plugin.getLogger().info("Server load is " + level.getDisplayName() + " (" + String.format("%.1f", lastMspt)
+                    + " MSPT), tightening sort limits");
+            }
+            return;
+        }
+
+        // Step down one level at a time, and only once the server is clearly below the current level's threshold
+        double threshold = level == LoadLevel.CRITICAL ? criticalMspt : elevatedMspt;
+        boolean calm = lastMspt < threshold * RECOVERY_MARGIN && (level != LoadLevel.CRITICAL || lastTps >= criticalTps);
+        calmSamples = calm ? calmSamples + 1 : 0;
+        if (calmSamples >= recoverySamples) {
+            calmSamples = 0;
+            level = LoadLevel.values()[level.ordinal() - 1];
+            applyLevel();
+            plugin.getLogger().info("Server load is " + level.getDisplayName() + " again, relaxing sort limits");
+        }
+    }
+
+    private void applyLevel() {
+        switch (level) {
+            case ELEVATED:
+                plugin.getRateLimiter().setLoadFactors(elevatedIntervalMultiplier, elevatedRateMultiplier);
+                break;
+            case CRITICAL:
+                plugin.getRateLimiter().setLoadFactors(criticalIntervalMultiplier, criticalRateMultiplier);
+                break;
+            default:
+                plugin.getRateLimiter().setLoadFactors(1.0, 1.0);
+                break;
+        }
+    }
+}
@@ -9,10 +9,14 @@ import org.bukkit.entity.Player;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 public class SortCommand implements CommandExecutor, TabCompleter {
     
+    // Radius used by /iwiz area when none is given
+    private static final int DEFAULT_AREA_RADIUS = 16;
+    
     private final InventoryWizardPlugin plugin;
     
     public SortCommand(InventoryWizardPlugin plugin) {
@@ -40,28 +44,23 @@ public class SortCommand implements CommandExecutor, TabCompleter {
                 }
                 
                 // Check rate limiting
-                if (!plugin.getRateLimiter().canSort(player)) {
+                if (!plugin.getRateLimiter().tryAcquire(player)) {
                     long timeRemaining = plugin.getRateLimiter().getTimeUntilNextSort(player);
                     int sortsUsed = plugin.getRateLimiter().getCurrentSortCount(player);
-                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed);
+                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed, plugin.getRateLimiter().getMaxSortsPerMinute());
+                    plugin.getSortMetrics().recordRateLimitRejection();
                     player.sendMessage("§c⏰ " + rateLimitMessage);
                     return true;
                 }
                 
-                long startTime = System.currentTimeMillis();
-                PlayerSortPreferences.SortMode mode = plugin.getPlayerPreferences().getPlayerSortMode(player);
-                InventorySorter.sortHotbar(player, mode);
-                
-                // Record the sort operation
-                plugin.getRateLimiter().recordSort(player);
-                
-                // Check if sort took too long
-                if (plugin.getRateLimiter().isSortTakingTooLong(startTime)) {
-                    plugin.getLogger().warning("Sort operation took too long for player: " + player.getName());
-                }
-                
-                player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.4f);
-                player.sendMessage("§6✨ Hotbar enchanted by the InventoryWizard! (" + mode.getDisplayName() + ")");
+                plugin.getPlayerPreferences().withPlayerSortMode(player, mode -> {
+                    plugin.getSortRequestQueue().requestPlayerSort(player, SortMetrics.Operation.HOTBAR, mode).thenAccept(changed -> {
+                        if (player.isOnline()) {
+                            player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.4f);
+                            player.sendMessage("§6✨ Hotbar enchanted by the InventoryWizard! (" + mode.getDisplayName() + ")");
+                        }
+                    });
+                });
                 break;
                 
             case "inventory":
@@ -72,28 +71,23 @@ public class SortCommand implements CommandExecutor, TabCompleter {
                 }
                 
                 // Check rate limiting
-                if (!plugin.getRateLimiter().canSort(player)) {
+                if (!plugin.getRateLimiter().tryAcquire(player)) {
                     long timeRemaining = plugin.getRateLimiter().getTimeUntilNextSort(player);
                     int sortsUsed = plugin.getRateLimiter().getCurrentSortCount(player);
-                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed);
+                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed, plugin.getRateLimiter().getMaxSortsPerMinute());
+                    plugin.getSortMetrics().recordRateLimitRejection();
                     player.sendMessage("§c⏰ " + rateLimitMessage);
                     return true;
                 }
                 
-                long invStartTime = System.currentTimeMillis();
-                PlayerSortPreferences.SortMode invMode = plugin.getPlayerPreferences().getPlayerSortMode(player);
-                InventorySorter.sortPlayerInventory(player, invMode);
-                
-                // Record the sort operation
-                plugin.getRateLimiter().recordSort(player);
-                
-                // Check if sort took too long
-                if (plugin.getRateLimiter().isSortTakingTooLong(invStartTime)) {
-                    plugin.getLogger().warning("Sort operation took too long for player: " + player.getName());
-                }
-                
-                player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.2f);
-                player.sendMessage("§a✨ Inventory magically organized! (" + invMode.getDisplayName() + ")");
+                plugin.getPlayerPreferences().withPlayerSortMode(player, invMode -> {
+                    plugin.getSortRequestQueue().requestPlayerSort(player, SortMetrics.Operation.INVENTORY, invMode).thenAccept(changed -> {
+                        if (player.isOnline()) {
+                            player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.2f);
+                            player.sendMessage("§a✨ Inventory magically organized! (" + invMode.getDisplayName() + ")");
+                        }
+                    });
+                });
                 break;
                 
             case "all":
@@ -104,29 +98,113 @@ public class SortCommand implements CommandExecutor, TabCompleter {
                 }
                 
                 // Check rate limiting
-                if (!plugin.getRateLimiter().canSort(player)) {
+                if (!plugin.getRateLimiter().tryAcquire(player)) {
+                    long timeRemaining = plugin.getRateLimiter().getTimeUntilNextSort(player);
+                    int sortsUsed = plugin.getRateLimiter().getCurrentSortCount(player);
+                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed, plugin.getRateLimiter().getMaxSortsPerMinute());
+                    plugin.getSortMetrics().recordRateLimitRejection();
+                    player.sendMessage("§c⏰ " + rateLimitMessage);
+                    return true;
+                }
+                
+                plugin.getPlayerPreferences().withPlayerSortMode(player, allMode -> {
+                    plugin.getSortRequestQueue().requestPlayerSort(player, SortMetrics.Operation.ALL, allMode).thenAccept(changed -> {
+                        if (player.isOnline()) {
+                            player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.0f);
+                            player.sendMessage("§b🧙✨ Complete inventory transformation complete! (" + allMode.getDisplayName() + ")");
+                        }
+                    });
+                });
+                break;
+                
+            case "area":
+            case "chunk":
+                if (!player.hasPermission("inventorywizard.area")) {
+                    player.sendMessage("§c🧙✨ " + ErrorHandler.getPermissionErrorMessage());
+                    return true;
+                }
+                
+                BulkSortManager bulkSortManager = plugin.getBulkSortManager();
+                if (bulkSortManager.hasJob(player)) {
+                    player.sendMessage("§c🧙✨ A bulk sort is already running. Use §f/iwiz cancel §cto stop it.");
+                    return true;
+                }
+                
+                int radius = DEFAULT_AREA_RADIUS;
+                if (sortType.equals("area") && args.length > 1) {
+                    try {
+                        radius = Integer.parseInt(args[1]);
+                    } catch (NumberFormatException e) {
+                        player.sendMessage("§c🧙✨ " + ErrorHandler.getValidationErrorMessage("radius"));
+                        return true;
+                    }
+                    if (radius < 1 || radius > bulkSortManager.getMaxRadius()) {
+                        player.sendMessage("§c🧙✨ Radius must be between 1 and " + bulkSortManager.getMaxRadius() + ".");
+                        return true;
+                    }
+                }
+                
+                // Check rate limiting; this takes the first token, and the job charges each container as it sorts it
+                if (!plugin.getRateLimiter().tryAcquire(player)) {
                     long timeRemaining = plugin.getRateLimiter().getTimeUntilNextSort(player);
                     int sortsUsed = plugin.getRateLimiter().getCurrentSortCount(player);
-                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed);
+                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed, plugin.getRateLimiter().getMaxSortsPerMinute());
+                    plugin.getSortMetrics().recordRateLimitRejection();
                     player.sendMessage("§c⏰ " + rateLimitMessage);
                     return true;
                 }
                 
-                long allStartTime = System.currentTimeMillis();
-                PlayerSortPreferences.SortMode allMode = plugin.getPlayerPreferences().getPlayerSortMode(player);
-                InventorySorter.sortPlayerInventory(player, allMode);
-                InventorySorter.sortHotbar(player, allMode);
+                int areaRadius = radius;
+                plugin.getPlayerPreferences().withPlayerSortMode(player, bulkMode -> {
+                    if (bulkSortManager.hasJob(player)) {
+                        return;
+                    }
+                    if (sortType.equals("area")) {
+                        bulkSortManager.startArea(player, bulkMode, areaRadius);
+                        player.sendMessage("§b🧙✨ Sorting every container within " + areaRadius + " blocks... (" + bulkMode.getDisplayName() + ")");
+                    } else {
+                        bulkSortManager.startChunk(player, bulkMode);
+                        player.sendMessage("§b🧙✨ Sorting every container in this chunk... (" + bulkMode.getDisplayName() + ")");
+                    }
+                    if (plugin.getServerLoadMonitor().isDeferringBackgroundSorts()) {
+                        player.sendMessage("§e⏳ The server is busy; sorting will start once it recovers.");
+                    }
+                });
+                break;
                 
-                // Record the sort operation
-                plugin.getRateLimiter().recordSort(player);
+            case "cancel":
+                if (!plugin.getBulkSortManager().cancel(player) && !plugin.getStorageGroupManager().cancel(player)) {
+                    player.sendMessage("§7No bulk sort is running.");
+                }
+                break;
                 
-                // Check if sort took too long
-                if (plugin.getRateLimiter().isSortTakingTooLong(allStartTime)) {
-                    plugin.getLogger().warning("Sort operation took too long for player: " + player.getName());
+            case "group":
+                if (!player.hasPermission("inventorywizard.chest")) {
+                    player.sendMessage("§c🧙✨ " + ErrorHandler.getPermissionErrorMessage());
+                    return true;
+                }
+                if (!plugin.getStorageGroupManager().isEnabled()) {
+                    player.sendMessage("§7Storage groups are disabled on this server.");
+                    return true;
                 }
+                handleGroup(player, args);
+                break;
                 
-                player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.0f);
-                player.sendMessage("§b🧙✨ Complete inventory transformation complete! (" + allMode.getDisplayName() + ")");
+            case "autosort":
+                if (!player.hasPermission("inventorywizard.chest")) {
+                    player.sendMessage("§c🧙✨ " + ErrorHandler.getPermissionErrorMessage());
+                    return true;
+                }
+                if (!plugin.getAutoSortManager().isEnabled()) {
+                    player.sendMessage("§7Auto-sort is disabled on this server.");
+                    return true;
+                }
+                plugin.getPlayerPreferences().toggleAutoSort(player, enabled -> {
+                    player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.6f);
+                    player.sendMessage(enabled
+                        ? "§a🔄 Auto-sort enabled: chests you change are sorted when you close them."
+                        : "§e🔄 Auto-sort disabled.");
+                });
                 break;
                 
             case "regen-credentials":
@@ -149,6 +227,7 @@ public class SortCommand implements CommandExecutor, TabCompleter {
                 for (String line : stats.split("\n")) {
                     player.sendMessage("§7" + line);
                 }
+                player.sendMessage("§7" + plugin.getServerLoadMonitor().getStatus());
                 break;
                 
             case "reset-rate-limit":
@@ -160,31 +239,152 @@ public class SortCommand implements CommandExecutor, TabCompleter {
                 player.sendMessage("§a⏰ Rate limiting reset for your account!");
                 break;
                 
+            case "stats":
+                if (!player.hasPermission("inventorywizard.admin")) {
+                    player.sendMessage("§c🧙✨ " + ErrorHandler.getPermissionErrorMessage());
+                    return true;
+                }
+                player.sendMessage("§6📊 InventoryWizard Metrics:");
+                for (String line : plugin.getSortMetrics().getReport(plugin.getPlayerPreferences())) {
+                    player.sendMessage("§7" + line);
+                }
+                player.sendMessage("§7Scheduler: " + plugin.getSortRequestQueue().getQueuedCount() + " sorts queued, "
+                    + plugin.getSortRequestQueue().getTickBudgetMs() + "ms budget per tick");
+                break;
+                
+            case "reload":
+                if (!player.hasPermission("inventorywizard.admin")) {
+                    player.sendMessage("§c🧙✨ " + ErrorHandler.getPermissionErrorMessage());
+                    return true;
+                }
+                try {
+                    plugin.reloadSettings();
+                    player.sendMessage("§a🔄 Configuration reloaded!");
+                } catch (Exception e) {
+                    plugin.getLogger().log(Level.WARNING, "Failed to reload configuration", e);
+                    player.sendMessage("§c🔄 " + ErrorHandler.getGeneralErrorMessage());
+                }
+                break;
+                
 
                 
             default:
-                player.sendMessage("§e🧙✨ InventoryWizard Usage: §f/iwiz [hotbar|inventory|all]");
-                player.sendMessage("§7Cast your sorting spells with: hotbar, inventory, or all");
+                player.sendMessage("§e🧙✨ InventoryWizard Usage: §f/iwiz [hotbar|inventory|all|area <radius>|chunk|cancel|autosort|group]");
+                player.sendMessage("§7Cast your sorting spells with: hotbar, inventory, all, area, or chunk");
+                player.sendMessage("§7Area and chunk sorts charge each container to your sort limit and pause while it refills");
                 return true;
         }
         
         return true;
     }
     
+    /**
+     * Handle /iwiz group <link|unlink|sort|list|delete> [name]
+     */
+    private void handleGroup(Player player, String[] args) {
+        StorageGroupManager storageGroups = plugin.getStorageGroupManager();
+        String action = args.length > 1 ? args[1].toLowerCase() : "";
+        String groupName = args.length > 2 ? InputValidator.validateGroupName(args[2]) : null;
+        boolean needsName = action.equals("link") || action.equals("sort") || action.equals("delete");
+        if (needsName && groupName == null) {
+            player.sendMessage("§c🧙✨ " + ErrorHandler.getValidationErrorMessage("group name")
+                + " §7(letters, digits, - and _, up to 32 characters)");
+            return;
+        }
+        
+        switch (action) {
+            case "link":
+                storageGroups.armLink(player, groupName);
+                player.sendMessage("§b🔗 Open a chest or barrel to link it to §f" + groupName + "§b.");
+                break;
+                
+            case "unlink":
+                storageGroups.armUnlink(player);
+                player.sendMessage("§b🔗 Open a linked chest or barrel to unlink it.");
+                break;
+                
+            case "list":
+                storageGroups.withGroups(player, owned -> {
+                    if (owned.isEmpty()) {
+                        player.sendMessage("§7You have no storage groups. Create one with §f/iwiz group link <name>§7.");
+                        return;
+                    }
+                    player.sendMessage("§6🔗 Your storage groups:");
+                    for (StorageGroup group : owned.values()) {
+                        player.sendMessage("§f" + group.getName() + " §7(" + group.size() + " containers)");
+                    }
+                });
+                break;
+                
+            case "delete":
+                storageGroups.delete(player, groupName);
+                break;
+                
+            case "sort":
+                if (plugin.getBulkSortManager().hasJob(player) || storageGroups.hasJob(player)) {
+                    player.sendMessage("§c🧙✨ A bulk sort is already running. Use §f/iwiz cancel §cto stop it.");
+                    return;
+                }
+                
+                // Check rate limiting; this takes the first token, and the job charges each container before sorting it
+                if (!plugin.getRateLimiter().tryAcquire(player)) {
+                    long timeRemaining = plugin.getRateLimiter().getTimeUntilNextSort(player);
+                    int sortsUsed = plugin.getRateLimiter().getCurrentSortCount(player);
+                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed, plugin.getRateLimiter().getMaxSortsPerMinute());
+                    plugin.getSortMetrics().recordRateLimitRejection();
+                    player.sendMessage("§c⏰ " + rateLimitMessage);
+                    return;
+                }
+                
+                storageGroups.withGroups(player, owned -> {
+                    StorageGroup group = owned.get(groupName);
+                    if (group == null) {
+                        player.sendMessage("§c🧙✨ You have no storage group named §f" + groupName + "§c.");
+                        return;
+                    }
+                    plugin.getPlayerPreferences().withPlayerSortMode(player, groupMode -> {
+                        if (storageGroups.hasJob(player)) {
+                            return;
+                        }
+                        storageGroups.startSort(player, group, groupMode);
+                        player.sendMessage("§b🧙✨ Sorting storage group §f" + groupName + "§b... (" + groupMode.getDisplayName() + ")");
+                        if (plugin.getServerLoadMonitor().isDeferringBackgroundSorts()) {
+                            player.sendMessage("§e⏳ The server is busy; sorting will start once it recovers.");
+                        }
+                    });
+                });
+                break;
+                
+            default:
+                player.sendMessage("§e🧙✨ Usage: §f/iwiz group <link|unlink|sort|list|delete> [name]");
+                break;
+        }
+    }
+    
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         if (args.length == 1) {
-            List<String> options = Arrays.asList("hotbar", "inventory", "all");
+            List<String> options = Arrays.asList("hotbar", "inventory", "all", "area", "chunk", "cancel", "autosort", "group");
             
             // Add admin commands for admins
             if (sender.hasPermission("inventorywizard.admin")) {
-                options = Arrays.asList("hotbar", "inventory", "all", "regen-credentials", "rate-limit", "reset-rate-limit");
+                options = Arrays.asList("hotbar", "inventory", "all", "area", "chunk", "cancel", "autosort", "group", "regen-credentials", "rate-limit", "reset-rate-limit", "stats", "reload");
             }
             
             return options.stream()
                     .filter(s -> s.toLowerCase().startsWith(args[0].toLowerCase()))
                     .collect(Collectors.toList());
         }
+        if (args[0].equalsIgnoreCase("group") && sender instanceof Player) {
+            List<String> options = args.length == 2
+                ? Arrays.asList("link", "unlink", "sort", "list", "delete")
+                : args.length == 3 ? plugin.getStorageGroupManager().getGroupNames((Player) sender) : null;
+            if (options != null) {
+                return options.stream()
+                        .filter(s -> s.startsWith(args[args.length - 1].toLowerCase()))
+                        .collect(Collectors.toList());
+            }
+        }
         return null;
     }
 }
\ No newline at end of file
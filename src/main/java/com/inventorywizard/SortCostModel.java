@@ -0,0 +1,58 @@
+package com.inventorywizard;
+
+import java.util.Arrays;
+
+/**
+ * Learns how much main-thread time sorts take, per operation and per slot
+ * Estimates start from a conservative default and then follow an exponentially weighted
+ * average of measured sorts, so they track the server's real hardware and typical inventories
+ * Main thread only
+ */
+final class SortCostModel {
+
+    // Starting estimate before any sort of a kind has been measured
+    private static final double DEFAULT_NANOS_PER_SLOT = 2000.0;
+    // Weight of each new measurement in the moving average
+    private static final double SMOOTHING = 0.2;
+    // A single measurement can move the average at most this many times the current estimate (GC pauses etc.)
+    private static final double MAX_OUTLIER_FACTOR = 10.0;
+    // Rate limits are expressed in sorts of a player's main inventory (27 slots)
+    private static final int REFERENCE_SLOTS = 27;
+
+    private final double[] nanosPerSlot = new double[SortMetrics.Operation.values().length];
+
+    SortCostModel() {
+        Arrays.fill(nanosPerSlot, DEFAULT_NANOS_PER_SLOT);
+    }
+
+    /**
+     * Estimate the main-thread time of a sort
+     * @param operation Kind of sort
+     * @param slots Slots it covers
+     * @return Estimated time in nanoseconds
+     */
+    long estimate(SortMetrics.Operation operation, int slots) {
+        return (long) (nanosPerSlot[operation.ordinal()] * Math.max(1, slots));
+    }
+
+    /**
+     * Feed a measured sort back into the estimates
+     * @param operation Kind of sort
+     * @param slots Slots it covered
+     * @param elapsedNanos Main-thread time it took
+     */
+    void record(SortMetrics.Operation operation, int slots, long elapsedNanos) {
+        int index = operation.ordinal();
+        double measured = Math.min((double) elapsedNanos / Math.max(1, slots), nanosPerSlot[index] * MAX_OUTLIER_FACTOR);
+        nanosPerSlot[index] += SMOOTHING * (measured - nanosPerSlot[index]);
+    }
+
+    /**
+     * Express a measured cost in reference sorts, the unit rate limits are charged in
+     * @param elapsedNanos Main-thread time of a sort
+     * @return Cost relative to sorting a main inventory
+     */
+    double toSortEquivalents(long elapsedNanos) {
+        return elapsedNanos / (double) Math.max(1, estimate(SortMetrics.Operation.INVENTORY, REFERENCE_SLOTS));
+    }
+}
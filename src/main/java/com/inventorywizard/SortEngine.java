@@ -0,0 +1,581 @@
+package com.inventorywizard;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Slot-array sort engine behind InventorySorter
+ * Works directly on a getContents() snapshot: similar stacks are grouped by ItemFingerprint
+ * (confirmed with isSimilar), groups are ordered by the strategy's primitive key columns, and the
+ * resulting layout reuses the snapshot's own stacks wherever their amount already fits
+ */
+final class SortEngine {
+
+    // Most stacks an incremental sort inserts; more than this and a full sort is about as cheap
+    private static final int MAX_INCREMENTAL_INSERTS = 9;
+
+    // Per-thread scratch buffers so a sort doesn't allocate index arrays
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private SortEngine() {
+    }
+
+    /**
+     * Compute the sorted layout for a range of slots
+     * @param contents Inventory snapshot (never modified)
+     * @param from First slot of the range (inclusive)
+     * @param to Last slot of the range (exclusive)
+     * @param strategy Sort strategy to apply
+     * @param hotbar Whether category keys use hotbar priorities
+     * @param allowPartialStacks Whether partial stacks are sorted alongside full ones
+     * @return Target layout of length (to - from), null for empty slots
+     */
+    static ItemStack[] computeLayout(ItemStack[] contents, int from, int to,
+                                     SortStrategy strategy, boolean hotbar, boolean allowPartialStacks) {
+        int size = to - from;
+        ItemStack[] layout = new ItemStack[size];
+        Scratch scratch = SCRATCH.get();
+        scratch.ensureCapacity(size);
+
+        int[] groupFirstSlot = scratch.groupFirstSlot;
+        int[] groupTotal = scratch.groupTotal;
+        int[] groupSize = scratch.groupSize;
+        int[] groupOfSlot = scratch.groupOfSlot;
+        long[] groupFingerprint = scratch.groupFingerprint;
+        int groupCount = 0;
+
+        // Pass 1: assign every stack to a group of similar stacks
+        for (int slot = from; slot < to; slot++) {
+            ItemStack item = contents[slot];
+            if (isEmpty(item)) {
+                groupOfSlot[slot - from] = -1;
+                continue;
+            }
+
+            // Fingerprints are compared first; isSimilar only runs on a match, so a hash collision can't merge stacks
+            long fingerprint = ItemFingerprint.of(item);
+            int group = -1;
+            for (int g = 0; g < groupCount; g++) {
+                if (groupFingerprint[g] == fingerprint && contents[groupFirstSlot[g]].isSimilar(item)) {
+                    group = g;
+                    break;
+                }
+            }
+
+            if (group < 0) {
+                group = groupCount++;
+                groupFirstSlot[group] = slot;
+                groupFingerprint[group] = fingerprint;
+                groupTotal[group] = 0;
+                groupSize[group] = 0;
+            }
+
+            groupOfSlot[slot - from] = group;
+            groupTotal[group] += item.getAmount();
+            groupSize[group]++;
+        }
+
+        if (groupCount == 0) {
+            return layout;
+        }
+
+        // Pass 2: bucket member slots per group, preserving slot order
+        int[] memberStart = scratch.memberStart;
+        int[] memberFill = scratch.memberFill;
+        int[] members = scratch.members;
+        int offset = 0;
+        for (int g = 0; g < groupCount; g++) {
+            memberStart[g] = offset;
+            memberFill[g] = offset;
+            offset += groupSize[g];
+        }
+        for (int i = 0; i < size; i++) {
+            int group = groupOfSlot[i];
+            if (group >= 0) {
+                members[memberFill[group]++] = from + i;
+            }
+        }
+
+        // Pass 3: extract one key column per strategy key, then order groups by the columns
+        int keyCount = strategy.getKeyCount();
+        long[] keys = scratch.keys(keyCount * groupCount);
+        for (int k = 0; k < keyCount; k++) {
+            strategy.extractKeys(k, contents, groupFirstSlot, groupTotal, groupCount, hotbar, keys, k * groupCount);
+        }
+        int[] order = scratch.order;
+        for (int g = 0; g < groupCount; g++) {
+            order[g] = g;
+        }
+        insertionSort(order, groupCount, keys, keyCount, groupCount);
+
+        // Pass 4: emit stacks into the layout
+        int out = 0;
+        int leftoverCount = 0;
+        int[] leftoverGroup = scratch.leftoverGroup;
+        int[] leftoverAmount = scratch.leftoverAmount;
+
+        for (int k = 0; k < groupCount && out < size; k++) {
+            int group = order[k];
+            int start = memberStart[group];
+            int count = groupSize[group];
+
+            if (!strategy.mergesStacks()) {
+                // Keep individual stacks, largest first
+                sortMembersByAmount(contents, members, start, count);
+                for (int m = 0; m < count && out < size; m++) {
+                    layout[out++] = contents[members[start + m]];
+                }
+                continue;
+            }
+
+            ItemStack template = contents[groupFirstSlot[group]];
+            int maxStackSize = Math.max(1, template.getMaxStackSize());
+            int totalAmount = groupTotal[group];
+            int donor = 0;
+
+            while (totalAmount > 0 && out < size) {
+                int amount = Math.min(totalAmount, maxStackSize);
+                if (amount < maxStackSize && !allowPartialStacks) {
+                    // Partial stacks are kept, but placed after all sorted full stacks
+                    leftoverGroup[leftoverCount] = group;
+                    leftoverAmount[leftoverCount] = amount;
+                    leftoverCount++;
+                    break;
+                }
+                layout[out++] = stackWithAmount(contents, members, start, count, donor++, template, amount);
+                totalAmount -= amount;
+            }
+        }
+
+        for (int i = 0; i < leftoverCount && out < size; i++) {
+            int group = leftoverGroup[i];
+            ItemStack template = contents[groupFirstSlot[group]];
+            int start = memberStart[group];
+            int count = groupSize[group];
+            layout[out++] = stackWithAmount(contents, members, start, count, count - 1, template, leftoverAmount[i]);
+        }
+
+        return layout;
+    }
+
+    /**
+     * Compute the layout a sort should write, or null if the range is already sorted
+     * Tries the incremental insertion first and falls back to a full computeLayout
+     * @see #computeLayout(ItemStack[], int, int, SortStrategy, boolean, boolean)
+     */
+    static ItemStack[] layoutFor(ItemStack[] contents, int from, int to,
+                                 SortStrategy strategy, boolean hotbar, boolean allowPartialStacks) {
+        if (isSorted(contents, from, to, strategy, hotbar, allowPartialStacks)) {
+            return null;
+        }
+        ItemStack[] layout = computeIncrementalLayout(contents, from, to, strategy, hotbar, allowPartialStacks);
+        return layout != null ? layout : computeLayout(contents, from, to, strategy, hotbar, allowPartialStacks);
+    }
+
+    /**
+     * Insert a few new stacks into a range that was sorted before they were added
+     * The range must be a sorted, packed prefix followed by at most MAX_INCREMENTAL_INSERTS stacks in the empty
+     * slots after it (how a shift-click or a drop into a sorted chest leaves it). Each new stack is first merged
+     * into its group's partial stack, then its insertion point is found by binary search over the prefix keys,
+     * so only the slots from the first insertion point onwards change
+     * @param contents Inventory snapshot (never modified)
+     * @param from First slot of the range (inclusive)
+     * @param to Last slot of the range (exclusive)
+     * @param strategy Sort strategy to apply
+     * @param hotbar Whether category keys use hotbar priorities
+     * @param allowPartialStacks Whether partial stacks are sorted alongside full ones
+     * @return Target layout of length (to - from), or null if the range isn't in that shape
+     */
+    static ItemStack[] computeIncrementalLayout(ItemStack[] contents, int from, int to,
+                                                SortStrategy strategy, boolean hotbar, boolean allowPartialStacks) {
+        boolean merging = strategy.mergesStacks();
+        // Group-dependent keys and trailing partial stacks can move stacks outside the insertion point
+        if (!strategy.isStackLocal() || (merging && !allowPartialStacks)) {
+            return null;
+        }
+
+        int prefixEnd = from;
+        while (prefixEnd < to && !isEmpty(contents[prefixEnd])) {
+            prefixEnd++;
+        }
+        int added = 0;
+        for (int slot = prefixEnd; slot < to; slot++) {
+            if (!isEmpty(contents[slot]) && ++added > MAX_INCREMENTAL_INSERTS) {
+                return null;
+            }
+        }
+        if (added == 0 || !isSorted(contents, from, prefixEnd, strategy, hotbar, allowPartialStacks)) {
+            return null;
+        }
+
+        // Key rows: prefix stacks first, then the added stacks
+        int size = to - from;
+        int prefixCount = prefixEnd - from;
+        int rows = prefixCount + added;
+        Scratch scratch = SCRATCH.get();
+        scratch.ensureCapacity(size);
+        int[] rowSlot = scratch.groupFirstSlot;
+        int[] rowAmount = scratch.groupTotal;
+        int row = 0;
+        for (int slot = from; slot < to; slot++) {
+            if (!isEmpty(contents[slot])) {
+                rowSlot[row] = slot;
+                rowAmount[row] = contents[slot].getAmount();
+                row++;
+            }
+        }
+        int keyCount = strategy.getKeyCount();
+        long[] keys = scratch.keys(keyCount * rows);
+        for (int k = 0; k < keyCount; k++) {
+            strategy.extractKeys(k, contents, rowSlot, rowAmount, rows, hotbar, keys, k * rows);
+        }
+
+        // The layout is built in place: entry i is layout[i] with its key row in entryRow[i]
+        ItemStack[] layout = new ItemStack[size];
+        int[] entryRow = scratch.order;
+        for (int i = 0; i < prefixCount; i++) {
+            layout[i] = contents[from + i];
+            entryRow[i] = i;
+        }
+        int count = prefixCount;
+
+        for (int newRow = prefixCount; newRow < rows; newRow++) {
+            ItemStack item = contents[rowSlot[newRow]];
+            // Run of entries with the same keys: [lower, upper)
+            int lower = searchKeys(entryRow, count, newRow, keys, keyCount, rows, false);
+            int upper = searchKeys(entryRow, count, newRow, keys, keyCount, rows, true);
+
+            int groupStart = -1;
+            int groupEnd = -1;
+            for (int i = lower; i < upper; i++) {
+                if (ItemFingerprint.isSimilar(layout[i], item)) {
+                    if (groupStart < 0) {
+                        groupStart = i;
+                    }
+                    groupEnd = i + 1;
+                } else if (groupStart >= 0) {
+                    break;
+                }
+            }
+
+            if (!merging) {
+                // Unmerged groups keep the largest stacks first
+                int insertAt = upper;
+                if (groupStart >= 0) {
+                    insertAt = groupEnd;
+                    for (int i = groupStart; i < groupEnd; i++) {
+                        if (layout[i].getAmount() < item.getAmount()) {
+                            insertAt = i;
+                            break;
+                        }
+                    }
+                }
+                count = insertEntry(layout, entryRow, count, size, insertAt, item, newRow);
+                if (count < 0) {
+                    return null;
+                }
+                continue;
+            }
+
+            int maxStackSize = Math.max(1, item.getMaxStackSize());
+            int remaining = item.getAmount();
+            int insertAt = upper;
+            if (groupStart >= 0) {
+                // Only the group's last stack can be partial in a sorted layout
+                int last = groupEnd - 1;
+                int space = maxStackSize - layout[last].getAmount();
+                if (space > 0) {
+                    int moved = Math.min(space, remaining);
+                    ItemStack topped = layout[last].clone();
+                    topped.setAmount(layout[last].getAmount() + moved);
+                    layout[last] = topped;
+                    remaining -= moved;
+                }
+                insertAt = groupEnd;
+            }
+            while (remaining > 0) {
+                int amount = Math.min(remaining, maxStackSize);
+                ItemStack stack = item;
+                if (amount != item.getAmount()) {
+                    // Snapshot stacks may mirror live slots, so never mutate them
+                    stack = item.clone();
+                    stack.setAmount(amount);
+                }
+                count = insertEntry(layout, entryRow, count, size, insertAt++, stack, newRow);
+                if (count < 0) {
+                    return null;
+                }
+                remaining -= amount;
+            }
+        }
+
+        return layout;
+    }
+
+    /**
+     * Check whether a range is already in the layout computeLayout would produce
+     * Stack-local strategies are checked in a single linear pass; others fall back to computing the layout
+     * @param contents Inventory snapshot (never modified)
+     * @param from First slot of the range (inclusive)
+     * @param to Last slot of the range (exclusive)
+     * @param strategy Sort strategy to check against
+     * @param hotbar Whether category keys use hotbar priorities
+     * @param allowPartialStacks Whether partial stacks are sorted alongside full ones
+     * @return true if sorting the range would not move anything
+     */
+    static boolean isSorted(ItemStack[] contents, int from, int to,
+                            SortStrategy strategy, boolean hotbar, boolean allowPartialStacks) {
+        if (!strategy.isStackLocal()) {
+            ItemStack[] layout = computeLayout(contents, from, to, strategy, hotbar, allowPartialStacks);
+            for (int i = 0; i < layout.length; i++) {
+                if (!isSameStack(contents[from + i], layout[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean merging = strategy.mergesStacks();
+        Scratch scratch = SCRATCH.get();
+        scratch.ensureCapacity(to - from);
+        int[] itemSlot = scratch.groupFirstSlot;
+        int[] itemAmount = scratch.groupTotal;
+        int itemCount = 0;
+        boolean seenEmpty = false;
+        // Without partial stacks a merged layout puts every group's partial remainder after all full stacks;
+        // index of the first stack of that trailing run, or -1
+        int partialStart = -1;
+
+        // Sorted layouts are packed at the start of the range, with stack sizes the layout would produce
+        for (int slot = from; slot < to; slot++) {
+            ItemStack item = contents[slot];
+            if (isEmpty(item)) {
+                seenEmpty = true;
+                continue;
+            }
+            if (seenEmpty) {
+                return false;
+            }
+
+            int maxStackSize = Math.max(1, item.getMaxStackSize());
+            if (merging && item.getAmount() > maxStackSize) {
+                return false;
+            }
+            if (merging && !allowPartialStacks) {
+                boolean partial = item.getAmount() < maxStackSize;
+                if (partial && partialStart < 0) {
+                    partialStart = itemCount;
+                } else if (!partial && partialStart >= 0) {
+                    return false;
+                }
+            }
+            itemSlot[itemCount] = slot;
+            itemAmount[itemCount] = item.getAmount();
+            itemCount++;
+        }
+
+        // Every stack is its own "group" here; stack-local keys don't depend on group totals
+        int keyCount = strategy.getKeyCount();
+        long[] keys = scratch.keys(keyCount * itemCount);
+        for (int k = 0; k < keyCount; k++) {
+            strategy.extractKeys(k, contents, itemSlot, itemAmount, itemCount, hotbar, keys, k * itemCount);
+        }
+
+        // Start of the current run of stacks sharing the same keys
+        int runStart = 0;
+        for (int i = 1; i < itemCount; i++) {
+            if (i == partialStart) {
+                // The trailing partial stacks are ordered among themselves, independently of the full stacks
+                runStart = i;
+                continue;
+            }
+            int comparison = compareKeys(i - 1, i, keys, keyCount, itemCount);
+            if (comparison > 0) {
+                return false;
+            }
+
+            ItemStack previous = contents[itemSlot[i - 1]];
+            ItemStack item = contents[itemSlot[i]];
+            if (comparison != 0) {
+                runStart = i;
+            } else if (ItemFingerprint.isSimilar(previous, item)) {
+                // Same group: merged layouts fill stacks before starting a new one,
+                // unmerged layouts keep the largest stacks first
+                if (merging ? previous.getAmount() != Math.max(1, item.getMaxStackSize())
+                            : previous.getAmount() < item.getAmount()) {
+                    return false;
+                }
+            } else {
+                // A new variant with the same keys must not repeat an earlier group in this run
+                for (int earlier = runStart; earlier < i - 1; earlier++) {
+                    if (ItemFingerprint.isSimilar(contents[itemSlot[earlier]], item)) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    static boolean isEmpty(ItemStack item) {
+        return item == null || item.getType() == Material.AIR || item.getAmount() <= 0;
+    }
+
+    /**
+     * Check whether two slot contents are interchangeable (same item and amount)
+     */
+    static boolean isSameStack(ItemStack a, ItemStack b) {
+        if (a == b) {
+            return true;
+        }
+        boolean aEmpty = isEmpty(a);
+        boolean bEmpty = isEmpty(b);
+        if (aEmpty || bEmpty) {
+            return aEmpty && bEmpty;
+        }
+        return a.getAmount() == b.getAmount() && a.isSimilar(b);
+    }
+
+    /**
+     * Reuse a snapshot stack from the group when it already holds the wanted amount,
+     * otherwise clone the template (snapshot stacks may mirror live slots, so never mutate them)
+     */
+    private static ItemStack stackWithAmount(ItemStack[] contents, int[] members, int start, int count,
+                                             int donor, ItemStack template, int amount) {
+        if (donor >= 0 && donor < count) {
+            ItemStack candidate = contents[members[start + donor]];
+            if (candidate.getAmount() == amount) {
+                return candidate;
+            }
+        }
+        ItemStack stack = template.clone();
+        stack.setAmount(amount);
+        return stack;
+    }
+
+    // Shift entries at and after index one slot right and put the stack there; -1 if the range is full
+    private static int insertEntry(ItemStack[] layout, int[] entryRow, int count, int size,
+                                   int index, ItemStack stack, int row) {
+        if (count >= size) {
+            return -1;
+        }
+        System.arraycopy(layout, index, layout, index + 1, count - index);
+        System.arraycopy(entryRow, index, entryRow, index + 1, count - index);
+        layout[index] = stack;
+        entryRow[index] = row;
+        return count + 1;
+    }
+
+    // Binary search over entries ordered by key rows: first entry with keys >= (or > when upper) the target row
+    private static int searchKeys(int[] entryRow, int count, int target, long[] keys, int keyCount, int stride,
+                                  boolean upper) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int comparison = compareKeys(entryRow[mid], target, keys, keyCount, stride);
+            if (comparison < 0 || (upper && comparison == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Stable insertion sort; groups are small (at most one per slot)
+    private static void insertionSort(int[] order, int length, long[] keys, int keyCount, int stride) {
+        for (int i = 1; i < length; i++) {
+            int current = order[i];
+            int j = i - 1;
+            while (j >= 0 && compareGroups(order[j], current, keys, keyCount, stride) > 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = current;
+        }
+    }
+
+    private static int compareGroups(int a, int b, long[] keys, int keyCount, int stride) {
+        int comparison = compareKeys(a, b, keys, keyCount, stride);
+        // Group indices follow first appearance, which keeps ties stable
+        return comparison != 0 ? comparison : Integer.compare(a, b);
+    }
+
+    // Key columns are laid out column by column: key k of group g is keys[k * stride + g]
+    private static int compareKeys(int a, int b, long[] keys, int keyCount, int stride) {
+        for (int k = 0, base = 0; k < keyCount; k++, base += stride) {
+            long keyA = keys[base + a];
+            long keyB = keys[base + b];
+            if (keyA != keyB) {
+                return keyA < keyB ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    private static void sortMembersByAmount(ItemStack[] contents, int[] members, int start, int count) {
+        for (int i = start + 1; i < start + count; i++) {
+            int current = members[i];
+            int amount = contents[current].getAmount();
+            int j = i - 1;
+            while (j >= start && contents[members[j]].getAmount() < amount) {
+                members[j + 1] = members[j];
+                j--;
+            }
+            members[j + 1] = current;
+        }
+    }
+
+    /**
+     * Reusable index buffers, grown to the largest range seen on this thread
+     */
+    private static final class Scratch {
+        private int capacity;
+        private int[] groupFirstSlot;
+        private int[] groupTotal;
+        private int[] groupSize;
+        private int[] groupOfSlot;
+        private long[] groupFingerprint;
+        private int[] memberStart;
+        private int[] memberFill;
+        private int[] members;
+        private long[] keys = new long[0];
+        private int[] order;
+        private int[] leftoverGroup;
+        private int[] leftoverAmount;
+
+        private Scratch() {
+            allocate(64);
+        }
+
+        private void ensureCapacity(int size) {
+            if (size > capacity) {
+                allocate(size);
+            }
+        }
+
+        private long[] keys(int length) {
+            if (keys.length < length) {
+                keys = new long[length];
+            }
+            return keys;
+        }
+
+        private void allocate(int size) {
+            capacity = size;
+            groupFirstSlot = new int[size];
+            groupTotal = new int[size];
+            groupSize = new int[size];
+            groupOfSlot = new int[size];
+            groupFingerprint = new long[size];
+            memberStart = new int[size];
+            memberFill = new int[size];
+            members = new int[size];
+            order = new int[size];
+            leftoverGroup = new int[size];
+            leftoverAmount = new int[size];
+        }
+    }
+}
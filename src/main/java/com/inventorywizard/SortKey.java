@@ -0,0 +1,231 @@
+package com.inventorywizard;
+
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.EnchantmentStorageMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Key extractors that sort strategies are composed from
+ * Every key turns a group of similar stacks into a single long (lower sorts first), so a strategy's
+ * comparator chain only ever compares primitives
+ */
+public enum SortKey {
+
+    /** Category priority from MaterialCategoryIndex (hotbar priorities when sorting the hotbar) */
+    CATEGORY("category", true) {
+        @Override
+        long extract(ItemStack item, int totalAmount, boolean hotbar) {
+            return hotbar
+                ? MaterialCategoryIndex.getHotbarPriority(item.getType())
+                : MaterialCategoryIndex.getInventoryPriority(item.getType());
+        }
+
+        @Override
+        void extractAll(ItemStack[] contents, int[] firstSlot, int[] totalAmount, int count,
+                        boolean hotbar, boolean descending, long[] out, int offset) {
+            // One table for the whole column, so a reload mid-sort can't mix two priority schemes
+            MaterialCategoryIndex.Table table = MaterialCategoryIndex.getTable();
+            for (int i = 0; i < count; i++) {
+                Material material = contents[firstSlot[i]].getType();
+                long value = hotbar ? table.getHotbarPriority(material) : table.getInventoryPriority(material);
+                out[offset + i] = descending ? -value : value;
+            }
+        }
+    },
+
+    /** Material name, alphabetical */
+    MATERIAL("material", true) {
+        @Override
+        long extract(ItemStack item, int totalAmount, boolean hotbar) {
+            return MaterialCategoryIndex.getNameRank(item.getType());
+        }
+
+        @Override
+        void extractAll(ItemStack[] contents, int[] firstSlot, int[] totalAmount, int count,
+                        boolean hotbar, boolean descending, long[] out, int offset) {
+            MaterialCategoryIndex.Table table = MaterialCategoryIndex.getTable();
+            for (int i = 0; i < count; i++) {
+                long value = table.getNameRank(contents[firstSlot[i]].getType());
+                out[offset + i] = descending ? -value : value;
+            }
+        }
+    },
+
+    /** Name shown to players: the custom name if set, otherwise the material name */
+    DISPLAY_NAME("display-name", true) {
+        // Strings can't be packed into a long, so names are ranked against each other per sort
+        @Override
+        void extractAll(ItemStack[] contents, int[] firstSlot, int[] totalAmount, int count,
+                        boolean hotbar, boolean descending, long[] out, int offset) {
+            String[] names = new String[count];
+            int[] order = new int[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = displayName(contents[firstSlot[i]]);
+                order[i] = i;
+            }
+
+            // Insertion sort of indices by name; count is at most one entry per slot
+            for (int i = 1; i < count; i++) {
+                int current = order[i];
+                int j = i - 1;
+                while (j >= 0 && names[order[j]].compareTo(names[current]) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = current;
+            }
+
+            long rank = 0;
+            for (int i = 0; i < count; i++) {
+                if (i > 0 && !names[order[i]].equals(names[order[i - 1]])) {
+                    rank++;
+                }
+                out[offset + order[i]] = descending ? -rank : rank;
+            }
+        }
+    },
+
+    /** Total amount of the group (largest first when descending) */
+    AMOUNT("amount", false) {
+        @Override
+        long extract(ItemStack item, int totalAmount, boolean hotbar) {
+            return totalAmount;
+        }
+    },
+
+    /** Damage taken; undamaged items first */
+    DURABILITY("durability", true) {
+        @Override
+        long extract(ItemStack item, int totalAmount, boolean hotbar) {
+            if (!item.hasItemMeta()) {
+                return 0;
+            }
+            ItemMeta meta = item.getItemMeta();
+            return meta instanceof Damageable ? ((Damageable) meta).getDamage() : 0;
+        }
+    },
+
+    /** Sum of enchantment levels, including those stored in enchanted books */
+    ENCHANT_LEVEL("enchant-level", true) {
+        @Override
+        long extract(ItemStack item, int totalAmount, boolean hotbar) {
+            if (!item.hasItemMeta()) {
+                return 0;
+            }
+            ItemMeta meta = item.getItemMeta();
+            long levels = sumLevels(meta.getEnchants());
+            if (meta instanceof EnchantmentStorageMeta) {
+                levels += sumLevels(((EnchantmentStorageMeta) meta).getStoredEnchants());
+            }
+            return levels;
+        }
+    };
+
+    private final String configName;
+    private final boolean stackLocal;
+
+    SortKey(String configName, boolean stackLocal) {
+        this.configName = configName;
+        this.stackLocal = stackLocal;
+    }
+
+    /**
+     * Name used in config.yml
+     */
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * Whether the key depends only on the stack itself (not on the group's total amount)
+     */
+    public boolean isStackLocal() {
+        return stackLocal;
+    }
+
+    /**
+     * Find a key by its config name
+     * @param name Config name, e.g. "enchant-level"
+     * @return The key, or null if unknown
+     */
+    public static SortKey fromConfigName(String name) {
+        for (SortKey key : values()) {
+            if (key.configName.equalsIgnoreCase(name)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extract the key of a single group
+     * Every key overrides this or extractAll; keys that only override extractAll (ranks) rank the item on its own
+     * @param item Representative stack of the group
+     * @param totalAmount Total amount of the group
+     * @param hotbar Whether hotbar priorities apply
+     * @return Key value, lower sorts first
+     */
+    long extract(ItemStack item, int totalAmount, boolean hotbar) {
+        long[] out = new long[1];
+        extractAll(new ItemStack[] {item}, new int[] {0}, new int[] {totalAmount}, 1, hotbar, false, out, 0);
+        return out[0];
+    }
+
+    /**
+     * Fill one key column for a set of groups
+     * @param contents Inventory snapshot
+     * @param firstSlot Representative slot of each group
+     * @param totalAmount Total amount of each group
+     * @param count Number of groups
+     * @param hotbar Whether hotbar priorities apply
+     * @param descending Whether larger values sort first
+     * @param out Column to fill
+     * @param offset Index of the first group in out
+     */
+    void extractAll(ItemStack[] contents, int[] firstSlot, int[] totalAmount, int count,
+                    boolean hotbar, boolean descending, long[] out, int offset) {
+        for (int i = 0; i < count; i++) {
+            long value = extract(contents[firstSlot[i]], totalAmount[i], hotbar);
+            out[offset + i] = descending ? -value : value;
+        }
+    }
+
+    private static String displayName(ItemStack item) {
+        if (item.hasItemMeta()) {
+            ItemMeta meta = item.getItemMeta();
+            if (meta != null && meta.hasDisplayName()) {
+                return stripColors(meta.getDisplayName()).toLowerCase(Locale.ROOT);
+            }
+        }
+        return item.getType().name().replace('_', ' ').toLowerCase(Locale.ROOT);
+    }
+
+    private static String stripColors(String name) {
+        StringBuilder stripped = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '§' && i + 1 < name.length()) {
+                i++;
+                continue;
+            }
+            stripped.append(c);
+        }
+        return stripped.toString();
+    }
+
+    private static long sumLevels(Map<Enchantment, Integer> enchants) {
+        long levels = 0;
+        if (enchants != null) {
+            for (int level : enchants.values()) {
+                levels += level;
+            }
+        }
+        return levels;
+    }
+}
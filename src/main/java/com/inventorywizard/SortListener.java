@@ -44,55 +44,49 @@ public class SortListener implements Listener {
                 
                 // Special case: Slot 4 (middle hotbar slot) cycles sorting modes
                 if (event.getSlot() == 4) {
-                    PlayerSortPreferences.SortMode newMode = preferences.cyclePlayerSortMode(player);
-                    player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.6f);
-                    player.sendMessage("§e🔄 Sorting mode changed to: §6" + newMode.getDisplayName());
+                    preferences.cyclePlayerSortMode(player, newMode -> {
+                        player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.6f);
+                        player.sendMessage("§e🔄 Sorting mode changed to: §6" + newMode.getDisplayName());
+                    });
                     return;
                 }
                 
-                // Check rate limiting first
-                if (!plugin.getRateLimiter().canSort(player)) {
+                // Nothing to sort without either permission, so don't charge for it
+                if (!player.hasPermission("inventorywizard.all") && !player.hasPermission("inventorywizard.hotbar")) {
+                    return;
+                }
+                
+                // Check rate limiting and charge the sort in one step
+                if (!plugin.getRateLimiter().tryAcquire(player)) {
                     long timeRemaining = plugin.getRateLimiter().getTimeUntilNextSort(player);
                     int sortsUsed = plugin.getRateLimiter().getCurrentSortCount(player);
-                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed);
+                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed, plugin.getRateLimiter().getMaxSortsPerMinute());
+                    plugin.getSortMetrics().recordRateLimitRejection();
                     player.sendMessage("§c⏰ " + rateLimitMessage);
                     return;
                 }
                 
-                long startTime = System.currentTimeMillis();
-                
                 // Check for combined sorting permission first
                 if (player.hasPermission("inventorywizard.all")) {
-                    PlayerSortPreferences.SortMode mode = preferences.getPlayerSortMode(player);
-                    InventorySorter.sortPlayerInventory(player, mode);
-                    InventorySorter.sortHotbar(player, mode);
-                    
-                    // Record the sort operation
-                    plugin.getRateLimiter().recordSort(player);
-                    
-                    // Check if sort took too long
-                    if (plugin.getRateLimiter().isSortTakingTooLong(startTime)) {
-                        plugin.getLogger().warning("Sort operation took too long for player: " + player.getName());
-                    }
-                    
-                    player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.0f);
-                    player.sendMessage("§b🧙✨ Complete inventory enchanted by the InventoryWizard! (" + mode.getDisplayName() + ")");
+                    preferences.withPlayerSortMode(player, mode -> {
+                        plugin.getSortRequestQueue().requestPlayerSort(player, SortMetrics.Operation.ALL, mode).thenAccept(changed -> {
+                            if (player.isOnline()) {
+                                player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.0f);
+                                player.sendMessage("§b🧙✨ Complete inventory enchanted by the InventoryWizard! (" + mode.getDisplayName() + ")");
+                            }
+                        });
+                    });
                 }
                 // Fall back to hotbar-only sorting
                 else if (player.hasPermission("inventorywizard.hotbar")) {
-                    PlayerSortPreferences.SortMode mode = preferences.getPlayerSortMode(player);
-                    InventorySorter.sortHotbar(player, mode);
-                    
-                    // Record the sort operation
-                    plugin.getRateLimiter().recordSort(player);
-                    
-                    // Check if sort took too long
-                    if (plugin.getRateLimiter().isSortTakingTooLong(startTime)) {
-                        plugin.getLogger().warning("Sort operation took too long for player: " + player.getName());
-                    }
-                    
-                    player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.4f);
-                    player.sendMessage("§6✨ Hotbar organized by the InventoryWizard! (" + mode.getDisplayName() + ")");
+                    preferences.withPlayerSortMode(player, mode -> {
+                        plugin.getSortRequestQueue().requestPlayerSort(player, SortMetrics.Operation.HOTBAR, mode).thenAccept(changed -> {
+                            if (player.isOnline()) {
+                                player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.4f);
+                                player.sendMessage("§6✨ Hotbar organized by the InventoryWizard! (" + mode.getDisplayName() + ")");
+                            }
+                        });
+                    });
                 }
                 return;
             }
@@ -105,28 +99,24 @@ public class SortListener implements Listener {
                 player.hasPermission("inventorywizard.chest")) {
                 
                 // Check rate limiting first
-                if (!plugin.getRateLimiter().canSort(player)) {
+                if (!plugin.getRateLimiter().tryAcquire(player)) {
                     long timeRemaining = plugin.getRateLimiter().getTimeUntilNextSort(player);
                     int sortsUsed = plugin.getRateLimiter().getCurrentSortCount(player);
-                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed);
+                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed, plugin.getRateLimiter().getMaxSortsPerMinute());
+                    plugin.getSortMetrics().recordRateLimitRejection();
                     player.sendMessage("§c⏰ " + rateLimitMessage);
                     return;
                 }
                 
-                long startTime = System.currentTimeMillis();
-                PlayerSortPreferences.SortMode mode = preferences.getPlayerSortMode(player);
-                InventorySorter.sortInventory(clickedInventory, mode);
-                
-                // Record the sort operation
-                plugin.getRateLimiter().recordSort(player);
-                
-                // Check if sort took too long
-                if (plugin.getRateLimiter().isSortTakingTooLong(startTime)) {
-                    plugin.getLogger().warning("Sort operation took too long for player: " + player.getName());
-                }
-                
-                player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.2f);
-                player.sendMessage("§a✨ Chest magically sorted! (" + mode.getDisplayName() + ")");
+                preferences.withPlayerSortMode(player, mode -> {
+                    // Viewers of the same chest share a single sort; joiners get their token back, so it is charged once
+                    plugin.getSortRequestQueue().requestContainerSort(clickedInventory, player, mode, true).thenAccept(changed -> {
+                        if (player.isOnline()) {
+                            player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.2f);
+                            player.sendMessage("§a✨ Chest magically sorted! (" + mode.getDisplayName() + ")");
+                        }
+                    });
+                });
                 
             } 
             // Check if it's player inventory (main inventory slots, excluding hotbar)
@@ -135,28 +125,23 @@ public class SortListener implements Listener {
                      player.hasPermission("inventorywizard.inventory")) {
                 
                 // Check rate limiting first
-                if (!plugin.getRateLimiter().canSort(player)) {
+                if (!plugin.getRateLimiter().tryAcquire(player)) {
                     long timeRemaining = plugin.getRateLimiter().getTimeUntilNextSort(player);
                     int sortsUsed = plugin.getRateLimiter().getCurrentSortCount(player);
-                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed);
+                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed, plugin.getRateLimiter().getMaxSortsPerMinute());
+                    plugin.getSortMetrics().recordRateLimitRejection();
                     player.sendMessage("§c⏰ " + rateLimitMessage);
                     return;
                 }
                 
-                long startTime = System.currentTimeMillis();
-                PlayerSortPreferences.SortMode mode = preferences.getPlayerSortMode(player);
-                InventorySorter.sortPlayerInventory(player, mode);
-                
-                // Record the sort operation
-                plugin.getRateLimiter().recordSort(player);
-                
-                // Check if sort took too long
-                if (plugin.getRateLimiter().isSortTakingTooLong(startTime)) {
-                    plugin.getLogger().warning("Sort operation took too long for player: " + player.getName());
-                }
-                
-                player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.2f);
-                player.sendMessage("§a✨ Inventory organized with wizard magic! (" + mode.getDisplayName() + ")");
+                preferences.withPlayerSortMode(player, mode -> {
+                    plugin.getSortRequestQueue().requestPlayerSort(player, SortMetrics.Operation.INVENTORY, mode).thenAccept(changed -> {
+                        if (player.isOnline()) {
+                            player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.2f);
+                            player.sendMessage("§a✨ Inventory organized with wizard magic! (" + mode.getDisplayName() + ")");
+                        }
+                    });
+                });
             }
         }
         
@@ -176,28 +161,23 @@ public class SortListener implements Listener {
                 event.setCancelled(true);
                 
                 // Check rate limiting first
-                if (!plugin.getRateLimiter().canSort(player)) {
+                if (!plugin.getRateLimiter().tryAcquire(player)) {
                     long timeRemaining = plugin.getRateLimiter().getTimeUntilNextSort(player);
                     int sortsUsed = plugin.getRateLimiter().getCurrentSortCount(player);
-                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed);
+                    String rateLimitMessage = ErrorHandler.getRateLimitErrorMessage(timeRemaining, sortsUsed, plugin.getRateLimiter().getMaxSortsPerMinute());
+                    plugin.getSortMetrics().recordRateLimitRejection();
                     player.sendMessage("§c⏰ " + rateLimitMessage);
                     return;
                 }
                 
-                long startTime = System.currentTimeMillis();
-                PlayerSortPreferences.SortMode mode = preferences.getPlayerSortMode(player);
-                InventorySorter.sortHotbar(player, mode);
-                
-                // Record the sort operation
-                plugin.getRateLimiter().recordSort(player);
-                
-                // Check if sort took too long
-                if (plugin.getRateLimiter().isSortTakingTooLong(startTime)) {
-                    plugin.getLogger().warning("Sort operation took too long for player: " + player.getName());
-                }
-                
-                player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.4f);
-                player.sendMessage("§6✨ Hotbar arranged by wizardry! (" + mode.getDisplayName() + ")");
+                preferences.withPlayerSortMode(player, mode -> {
+                    plugin.getSortRequestQueue().requestPlayerSort(player, SortMetrics.Operation.HOTBAR, mode).thenAccept(changed -> {
+                        if (player.isOnline()) {
+                            player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.4f);
+                            player.sendMessage("§6✨ Hotbar arranged by wizardry! (" + mode.getDisplayName() + ")");
+                        }
+                    });
+                });
             }
         }
         
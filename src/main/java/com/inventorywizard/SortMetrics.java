@@ -0,0 +1,367 @@
+package com.inventorywizard;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Sort and persistence metrics
+ * Recording is lock-free so it can run on the server thread and the persistence thread alike
+ */
+public class SortMetrics {
+
+    public enum Operation {
+        CHEST("chest"),
+        INVENTORY("inventory"),
+        HOTBAR("hotbar"),
+        ALL("all"),
+        STORAGE_GROUP("storage group");
+
+        private final String displayName;
+
+        Operation(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    public enum DatabaseOperation {
+        READ("read"),
+        WRITE("write"),
+        BATCH_WRITE("batch write");
+
+        private final String displayName;
+
+        DatabaseOperation(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    // Default dump settings (6000 ticks = 5 minutes)
+    private static final long DEFAULT_DUMP_INTERVAL_TICKS = 6000L;
+    private static final long DEFAULT_MAX_FILE_SIZE_KB = 1024L;
+    private static final int DEFAULT_MAX_FILES = 5;
+    private static final String DUMP_FILE_NAME = "metrics.log";
+
+    private final Map<Operation, Map<PlayerSortPreferences.SortMode, LatencyHistogram>> sortLatency = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> itemsProcessed = new EnumMap<>(Operation.class);
+    private final Map<DatabaseOperation, LatencyHistogram> databaseLatency = new EnumMap<>(DatabaseOperation.class);
+    private final LongAdder rateLimitRejections = new LongAdder();
+    private final LongAdder asyncConflicts = new LongAdder();
+    private final long startedAt = System.currentTimeMillis();
+
+    private BukkitTask dumpTask;
+
+    public SortMetrics() {
+        // Every histogram exists up front so recording never allocates or races on creation
+        for (Operation operation : Operation.values()) {
+            Map<PlayerSortPreferences.SortMode, LatencyHistogram> byMode = new EnumMap<>(PlayerSortPreferences.SortMode.class);
+            for (PlayerSortPreferences.SortMode mode : PlayerSortPreferences.SortMode.values()) {
+                byMode.put(mode, new LatencyHistogram());
+            }
+            sortLatency.put(operation, byMode);
+            itemsProcessed.put(operation, new LongAdder());
+        }
+        for (DatabaseOperation operation : DatabaseOperation.values()) {
+            databaseLatency.put(operation, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Record a completed sort
+     * @param operation What was sorted
+     * @param mode The sort mode used
+     * @param elapsedNanos Time spent sorting
+     * @param items Number of items in the sorted slots
+     */
+    public void recordSort(Operation operation, PlayerSortPreferences.SortMode mode, long elapsedNanos, int items) {
+        sortLatency.get(operation).get(mode).record(elapsedNanos);
+        itemsProcessed.get(operation).add(items);
+    }
+
+    /**
+     * Record the latency of one database call
+     * @param operation The kind of call
+     * @param elapsedNanos Time spent in JDBC
+     */
+    public void recordDatabaseCall(DatabaseOperation operation, long elapsedNanos) {
+        databaseLatency.get(operation).record(elapsedNanos);
+    }
+
+    public void recordRateLimitRejection() {
+        rateLimitRejections.increment();
+    }
+
+    /**
+     * Record an off-thread sort whose inventory changed before the result could be applied
+     */
+    public void recordAsyncConflict() {
+        asyncConflicts.increment();
+    }
+
+    public LatencyHistogram getSortLatency(Operation operation, PlayerSortPreferences.SortMode mode) {
+        return sortLatency.get(operation).get(mode);
+    }
+
+    public LatencyHistogram getDatabaseLatency(DatabaseOperation operation) {
+        return databaseLatency.get(operation);
+    }
+
+    public long getItemsProcessed(Operation operation) {
+        return itemsProcessed.get(operation).sum();
+    }
+
+    public long getRateLimitRejections() {
+        return rateLimitRejections.sum();
+    }
+
+    public long getAsyncConflicts() {
+        return asyncConflicts.sum();
+    }
+
+    /**
+     * Count the items in a slot range of an inventory
+     * @param inventory The inventory
+     * @param from First slot (inclusive)
+     * @param to Last slot (exclusive)
+     * @return Total item amount
+     */
+    public static int countItems(Inventory inventory, int from, int to) {
+        int items = 0;
+        for (int slot = from; slot < to; slot++) {
+            ItemStack item = inventory.getItem(slot);
+            if (!SortEngine.isEmpty(item)) {
+                items += item.getAmount();
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Build a human-readable report of everything recorded since startup
+     * @param preferences Preference cache to include hit rates from (may be null)
+     * @return Report lines
+     */
+    public List<String> getReport(PlayerSortPreferences preferences) {
+        List<String> lines = new ArrayList<>();
+        long uptimeSeconds = (System.currentTimeMillis() - startedAt) / 1000;
+        lines.add("Uptime: " + uptimeSeconds + "s");
+
+        lines.add("Sorts (latency p50/p99/max):");
+        boolean anySorts = false;
+        for (Operation operation : Operation.values()) {
+            for (PlayerSortPreferences.SortMode mode : PlayerSortPreferences.SortMode.values()) {
+                LatencyHistogram histogram = sortLatency.get(operation).get(mode);
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                anySorts = true;
+                lines.add("  " + operation.getDisplayName() + "/" + mode.getDisplayName() + ": " + histogram.summary());
+            }
+            long items = getItemsProcessed(operation);
+            if (items > 0) {
+                lines.add("  " + operation.getDisplayName() + " items processed: " + items);
+            }
+        }
+        if (!anySorts) {
+            lines.add("  none recorded");
+        }
+
+        lines.add("Database (latency p50/p99/max):");
+        for (DatabaseOperation operation : DatabaseOperation.values()) {
+            lines.add("  " + operation.getDisplayName() + ": " + databaseLatency.get(operation).summary());
+        }
+
+        if (preferences != null) {
+            long hits = preferences.getCacheHits();
+            long misses = preferences.getCacheMisses();
+            long lookups = hits + misses;
+            String hitRate = lookups == 0 ? "n/a" : String.format(Locale.ROOT, "%.1f%%", hits * 100.0 / lookups);
+            lines.add("Preference cache: " + hits + " hits, " + misses + " misses (" + hitRate + "), "
+                + preferences.getLoadTimeouts() + " load timeouts, " + preferences.getPendingWrites() + " pending writes");
+        }
+
+        lines.add("Rate-limit rejections: " + getRateLimitRejections());
+        lines.add("Off-thread sorts re-run after a conflict: " + getAsyncConflicts());
+        return lines;
+    }
+
+    /**
+     * Start periodically appending the report to a rolling file in the data folder
+     * @param plugin The plugin (for the scheduler, config and data folder)
+     */
+    public void startFileDump(InventoryWizardPlugin plugin) {
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("metrics");
+        if (section != null && !section.getBoolean("dump-enabled", true)) {
+            return;
+        }
+
+        long interval = section != null ? section.getLong("dump-interval-ticks", DEFAULT_DUMP_INTERVAL_TICKS) : DEFAULT_DUMP_INTERVAL_TICKS;
+        long maxBytes = (section != null ? section.getLong("max-file-size-kb", DEFAULT_MAX_FILE_SIZE_KB) : DEFAULT_MAX_FILE_SIZE_KB) * 1024;
+        int maxFiles = Math.max(1, section != null ? section.getInt("max-files", DEFAULT_MAX_FILES) : DEFAULT_MAX_FILES);
+        File file = new File(plugin.getDataFolder(), DUMP_FILE_NAME);
+
+        // File I/O stays off the server thread
+        dumpTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+            try {
+                dumpToFile(file, getReport(plugin.getPlayerPreferences()), maxBytes, maxFiles);
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to write metrics file", e);
+            }
+        }, interval, interval);
+    }
+
+    public void stopFileDump() {
+        if (dumpTask != null) {
+            dumpTask.cancel();
+            dumpTask = null;
+        }
+    }
+
+    private static void dumpToFile(File file, List<String> report, long maxBytes, int maxFiles) throws IOException {
+        if (file.exists() && file.length() >= maxBytes) {
+            roll(file, maxFiles);
+        }
+
+        StringBuilder out = new StringBuilder();
+        out.append("=== ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.ROOT).format(new Date())).append(" ===\n");
+        for (String line : report) {
+            out.append(line).append('\n');
+        }
+        Files.write(file.toPath(), out.toString().getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    // metrics.log -> metrics.log.1 -> ... -> metrics.log.<maxFiles - 1>, oldest is dropped
+    private static void roll(File file, int maxFiles) throws IOException {
+        File oldest = new File(file.getPath() + "." + (maxFiles - 1));
+        Files.deleteIfExists(oldest.toPath());
+        for (int i = maxFiles - 2; i >= 1; i--) {
+            File source = new File(file.getPath() + "." + i);
+            if (source.exists()) {
+                Files.move(source.toPath(), new File(file.getPath() + "." + (i + 1)).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 1) {
+            Files.move(file.toPath(), new File(file.getPath() + ".1").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file.toPath());
+        }
+    }
+
+    /**
+     * Log-linear latency histogram in the style of HdrHistogram
+     * Each power of two is split into 16 sub-buckets (about 6% relative error); recording is a single atomic add
+     */
+    public static final class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        public void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts.incrementAndGet(indexOf(value));
+            count.increment();
+            totalNanos.add(value);
+            long max = maxNanos.get();
+            while (value > max && !maxNanos.compareAndSet(max, value)) {
+                max = maxNanos.get();
+            }
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public long getMeanNanos() {
+            long samples = count.sum();
+            return samples == 0 ? 0 : totalNanos.sum() / samples;
+        }
+
+        /**
+         * Get an approximate percentile
+         * @param percentile Percentile between 0 and 100
+         * @return Upper bound of the bucket holding the percentile, in nanoseconds
+         */
+        public long getPercentileNanos(double percentile) {
+            long samples = count.sum();
+            if (samples == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(samples * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= target) {
+                    return Math.min(upperBoundOf(i), maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+
+        /**
+         * Format count, p50, p99 and max in milliseconds
+         */
+        public String summary() {
+            return String.format(Locale.ROOT, "n=%d p50=%.3fms p99=%.3fms max=%.3fms",
+                getCount(), toMillis(getPercentileNanos(50)), toMillis(getPercentileNanos(99)), toMillis(getMaxNanos()));
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+
+        private static int indexOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+            int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+            return (shift + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long upperBoundOf(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            long subBucket = (index % SUB_BUCKETS) | SUB_BUCKETS;
+            return ((subBucket + 1) << shift) - 1;
+        }
+    }
+}
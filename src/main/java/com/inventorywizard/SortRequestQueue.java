@@ -0,0 +1,380 @@
+package com.inventorywizard;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import com.destroystokyo.paper.event.server.ServerTickStartEvent;
+import org.bukkit.Location;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.inventory.Inventory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+/**
+ * Server-wide sort scheduler: collects sort requests and runs them at the end of the tick within a
+ * main-thread time budget shared by every player
+ * Requests for the same inventory are coalesced while they wait: a hotbar and an inventory sort
+ * of the same player become a single pass over slots 0-35, and several viewers of one chest
+ * trigger a single container sort, also across ticks while it is still running off-thread
+ * Each tick admits queued sorts round-robin across players, one sort per player per turn, for as long
+ * as their estimated cost (SortCostModel) fits in what is left of the budget; the rest wait for later ticks
+ * While ServerLoadMonitor reports critical load, uncharged background sorts (auto-sort) stay queued
+ * Every requester's future completes with the shared result
+ */
+public class SortRequestQueue implements Listener {
+
+    // Defaults used when config.yml doesn't override them
+    private static final double DEFAULT_TICK_BUDGET_MS = 5.0;
+    // Bulk and group jobs always get at least this much per tick so they keep moving under load
+    private static final long MIN_BACKGROUND_SLICE_NANOS = 100_000L;
+
+    private final InventoryWizardPlugin plugin;
+    private final long tickBudgetNanos;
+    private final SortCostModel costModel = new SortCostModel();
+
+    // Keyed by player UUID for player inventories and by InventorySorter.containerKey for containers
+    private final Map<Object, PendingSort> pending = new HashMap<>();
+    // Waiting sorts per player, in the order players take their turns
+    private final LinkedHashMap<UUID, ArrayDeque<PendingSort>> queues = new LinkedHashMap<>();
+    // Main-thread sort time spent so far this tick, including bulk and group jobs
+    private long spentThisTick;
+
+    public SortRequestQueue(InventoryWizardPlugin plugin) {
+        this.plugin = plugin;
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("scheduler");
+        double budgetMs = section != null ? section.getDouble("tick-budget-ms", DEFAULT_TICK_BUDGET_MS) : DEFAULT_TICK_BUDGET_MS;
+        this.tickBudgetNanos = (long) (Math.max(0.1, budgetMs) * 1_000_000L);
+    }
+
+    /**
+     * Queue a sort of a player's own inventory; the caller has already charged it to the rate limiter
+     * @param player The player
+     * @param operation HOTBAR, INVENTORY or ALL
+     * @param mode Sort mode to use
+     * @return Future with true if any slot changed, completed on the main thread at the end of the tick it runs in
+     */
+    public CompletableFuture<Boolean> requestPlayerSort(Player player, SortMetrics.Operation operation,
+                                                        PlayerSortPreferences.SortMode mode) {
+        PendingSort sort = pending.get(player.getUniqueId());
+        if (sort == null) {
+            sort = new PendingSort(player.getUniqueId(), player.getInventory(), player, mode, true);
+            pending.put(player.getUniqueId(), sort);
+            enqueue(sort);
+        }
+        sort.hotbar |= operation == SortMetrics.Operation.HOTBAR || operation == SortMetrics.Operation.ALL;
+        sort.main |= operation == SortMetrics.Operation.INVENTORY || operation == SortMetrics.Operation.ALL;
+        sort.chargedSorts++;
+        return sort.addWaiter();
+    }
+
+    /**
+     * Queue a sort of a container, or join one that is already queued or running
+     * A sort's cost is accounted to the rate limiter only once: callers charge each request up front, the request
+     * that starts a new sort has that charge settled against the measured cost, and everyone who joins it gets
+     * their token back and shares its result, so the first request's mode and stack setting are used
+     * @param inventory The container
+     * @param requester Player who asked for the sort
+     * @param mode Sort mode to use
+     * @param allowPartialStacks Whether partial stacks are sorted alongside full ones
+     * @return Future with true if any slot changed, completed on the main thread
+     */
+    public CompletableFuture<Boolean> requestContainerSort(Inventory inventory, Player requester,
+                                                           PlayerSortPreferences.SortMode mode, boolean allowPartialStacks) {
+        return requestContainerSort(inventory, requester, mode, allowPartialStacks, true);
+    }
+
+    /**
+     * Queue a sort of a container, optionally without charging the requester (used for auto-sort)
+     * @see #requestContainerSort(Inventory, Player, PlayerSortPreferences.SortMode, boolean)
+     * @param charged Whether the requester has already been charged for the sort (settled against its measured cost)
+     */
+    public CompletableFuture<Boolean> requestContainerSort(Inventory inventory, Player requester,
+                                                           PlayerSortPreferences.SortMode mode, boolean allowPartialStacks,
+                                                           boolean charged) {
+        // Still being computed off-thread from an earlier tick
+        CompletableFuture<Boolean> running = plugin.getAsyncSortService().getRunningSort(inventory);
+        if (running != null) {
+            if (charged) {
+                plugin.getRateLimiter().refund(requester.getUniqueId());
+            }
+            return running;
+        }
+
+        Object key = InventorySorter.containerKey(inventory);
+        PendingSort sort = pending.get(key);
+        if (sort == null) {
+            sort = new PendingSort(key, inventory, requester, mode, allowPartialStacks);
+            sort.container = true;
+            pending.put(key, sort);
+            enqueue(sort);
+            if (charged) {
+                // The requester already paid one token through RateLimiter.tryAcquire
+                sort.chargedSorts = 1;
+            } else {
+                sort.background = true;
+            }
+        } else if (charged && sort.chargedSorts == 0) {
+            // A paid request takes over a queued auto-sort, so it is no longer deferred under load
+            sort.background = false;
+            sort.chargedSorts++;
+            sort.payer = requester;
+        } else if (charged) {
+            plugin.getRateLimiter().refund(requester.getUniqueId());
+        }
+        return sort.addWaiter();
+    }
+
+    @EventHandler
+    public void onServerTickStart(ServerTickStartEvent event) {
+        spentThisTick = 0;
+    }
+
+    @EventHandler
+    public void onServerTickEnd(ServerTickEndEvent event) {
+        flush();
+    }
+
+    /**
+     * Count main-thread time a bulk or group job spent sorting this tick against the shared budget
+     * @param nanos Time spent
+     */
+    public void recordBackgroundWork(long nanos) {
+        spentThisTick += nanos;
+    }
+
+    /**
+     * Get how long a bulk or group job may work this tick
+     * Queued player sorts run last in the tick, so background jobs only get what is left of the shared budget,
+     * but never less than a small slice so they can't be starved completely
+     * @param maxNanos The job's own per-tick budget
+     * @return Time the job may use, in nanoseconds
+     */
+    public long grantBackgroundSlice(long maxNanos) {
+        return Math.max(MIN_BACKGROUND_SLICE_NANOS, Math.min(maxNanos, tickBudgetNanos - spentThisTick));
+    }
+
+    /**
+     * Estimate what a sort costs against the rate limit, for jobs that charge per container
+     * @param operation Kind of sort
+     * @param slots Slots it covers
+     * @return Estimated cost in main inventory sorts
+     */
+    public double estimateSortEquivalents(SortMetrics.Operation operation, int slots) {
+        return costModel.toSortEquivalents(costModel.estimate(operation, slots));
+    }
+
+    /**
+     * Get the number of sorts waiting for their turn
+     */
+    public int getQueuedCount() {
+        return pending.size();
+    }
+
+    public double getTickBudgetMs() {
+        return tickBudgetNanos / 1_000_000.0;
+    }
+
+    /**
+     * Run queued sorts until this tick's budget is used up
+     * The first sort of a tick always runs, so a single sort larger than the budget can't block the queue
+     */
+    public void flush() {
+        boolean deferBackground = plugin.getServerLoadMonitor().isDeferringBackgroundSorts();
+        boolean ranAny = false;
+        // Players passed over in a row because they only have deferred sorts queued
+        int skipped = 0;
+
+        while (!queues.isEmpty() && skipped < queues.size()) {
+            Iterator<Map.Entry<UUID, ArrayDeque<PendingSort>>> turn = queues.entrySet().iterator();
+            Map.Entry<UUID, ArrayDeque<PendingSort>> next = turn.next();
+            PendingSort sort = nextAdmissible(next.getValue(), deferBackground);
+            if (sort == null) {
+                turn.remove();
+                queues.put(next.getKey(), next.getValue());
+                skipped++;
+                continue;
+            }
+
+            // Strict round-robin: a sort that doesn't fit ends the tick instead of being skipped, so big sorts can't starve
+            if (ranAny && spentThisTick + costModel.estimate(sort.getOperation(), sort.getSlots()) > tickBudgetNanos) {
+                break;
+            }
+
+            turn.remove();
+            next.getValue().remove(sort);
+            if (!next.getValue().isEmpty()) {
+                // Back of the line
+                queues.put(next.getKey(), next.getValue());
+            }
+            pending.remove(sort.key);
+            skipped = 0;
+
+            long startTime = System.nanoTime();
+            boolean offThread = false;
+            try {
+                if (sort.container) {
+                    offThread = runContainerSort(sort);
+                } else {
+                    runPlayerSort(sort);
+                }
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.WARNING, "Queued sort failed for player: " + sort.requester.getName(), e);
+                sort.complete(false);
+            }
+            long elapsed = System.nanoTime() - startTime;
+            spentThisTick += elapsed;
+            ranAny = true;
+
+            // Only the snapshot of an off-thread sort shows up here, so it must neither teach the model that large
+            // containers are cheap nor be charged less than the same sort is estimated to cost on the server thread
+            long cost = elapsed;
+            if (offThread) {
+                cost = Math.max(elapsed, costModel.estimate(sort.getOperation(), sort.getSlots()));
+            } else {
+                costModel.record(sort.getOperation(), sort.getSlots(), elapsed);
+            }
+            if (sort.chargedSorts > 0) {
+                plugin.getRateLimiter().settleCost(sort.payer.getUniqueId(), costModel.toSortEquivalents(cost),
+                    sort.chargedSorts);
+            }
+        }
+    }
+
+    /**
+     * Drop queued requests without running them (their futures never complete)
+     */
+    public void clear() {
+        pending.clear();
+        queues.clear();
+    }
+
+    // A player's oldest sort, or their oldest charged one while background sorts are deferred
+    private static PendingSort nextAdmissible(ArrayDeque<PendingSort> queue, boolean deferBackground) {
+        for (PendingSort sort : queue) {
+            if (!deferBackground || !sort.background) {
+                return sort;
+            }
+        }
+        return null;
+    }
+
+    private void enqueue(PendingSort sort) {
+        queues.computeIfAbsent(sort.requester.getUniqueId(), id -> new ArrayDeque<>()).addLast(sort);
+    }
+
+    private void runPlayerSort(PendingSort sort) {
+        Player player = sort.requester;
+        if (!player.isOnline()) {
+            sort.complete(false);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        boolean changed = InventorySorter.sortPlayerStorage(player, sort.mode, sort.hotbar, sort.main, sort.allowPartialStacks);
+        long elapsed = System.nanoTime() - startTime;
+
+        plugin.getSortMetrics().recordSort(sort.getOperation(), sort.mode, elapsed, SortMetrics.countItems(player.getInventory(),
+            sort.hotbar ? 0 : 9, sort.main ? 36 : 9));
+        warnIfSlow(sort, elapsed);
+        sort.complete(changed);
+    }
+
+    // Returns true if the sort was handed to the worker pool and only its snapshot ran here
+    private boolean runContainerSort(PendingSort sort) {
+        Location location = sort.inventory.getLocation();
+        // The chunk may have unloaded while the sort was waiting for its turn
+        if (location != null && (location.getWorld() == null
+            || !location.getWorld().isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4))) {
+            sort.complete(false);
+            return false;
+        }
+
+        // Large containers are only snapshotted here; the ordering runs off-thread and isn't charged to the budget
+        long startTime = System.nanoTime();
+        CompletableFuture<Boolean> result = plugin.getAsyncSortService().sortInventory(sort.inventory, sort.mode, sort.allowPartialStacks);
+        boolean offThread = !result.isDone();
+        result.thenAccept(changed -> {
+            long elapsed = System.nanoTime() - startTime;
+            plugin.getSortMetrics().recordSort(SortMetrics.Operation.CHEST, sort.mode, elapsed,
+                SortMetrics.countItems(sort.inventory, 0, sort.inventory.getSize()));
+            warnIfSlow(sort, elapsed);
+            sort.complete(changed);
+        });
+        return offThread;
+    }
+
+    private void warnIfSlow(PendingSort sort, long elapsed) {
+        if (plugin.getRateLimiter().isSortDurationTooLong(elapsed)) {
+            plugin.getLogger().warning("Sort operation took too long for player: " + sort.requester.getName());
+        }
+    }
+
+    /**
+     * One inventory's coalesced requests, waiting for their turn
+     */
+    private static final class PendingSort {
+        private final Object key;
+        private final Inventory inventory;
+        private final Player requester;
+        private final PlayerSortPreferences.SortMode mode;
+        private final boolean allowPartialStacks;
+        private final List<CompletableFuture<Boolean>> waiters = new ArrayList<>(1);
+
+        private boolean container;
+        private boolean background;
+        private boolean hotbar;
+        private boolean main;
+        // Rate limiter charges taken for this sort, settled against its measured cost once it has run
+        private int chargedSorts;
+        // Player the charges are settled with; differs from requester when a paid request took over an auto-sort
+        private Player payer;
+
+        private PendingSort(Object key, Inventory inventory, Player requester, PlayerSortPreferences.SortMode mode,
+                            boolean allowPartialStacks) {
+            this.key = key;
+            this.inventory = inventory;
+            this.requester = requester;
+            this.payer = requester;
+            this.mode = mode;
+            this.allowPartialStacks = allowPartialStacks;
+        }
+
+        private SortMetrics.Operation getOperation() {
+            if (container) {
+                return SortMetrics.Operation.CHEST;
+            }
+            return hotbar && main
+                ? SortMetrics.Operation.ALL
+                : hotbar ? SortMetrics.Operation.HOTBAR : SortMetrics.Operation.INVENTORY;
+        }
+
+        private int getSlots() {
+            if (container) {
+                return inventory.getSize();
+            }
+            return (hotbar ? 9 : 0) + (main ? 27 : 0);
+        }
+
+        private CompletableFuture<Boolean> addWaiter() {
+            CompletableFuture<Boolean> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            return waiter;
+        }
+
+        private void complete(boolean changed) {
+            for (CompletableFuture<Boolean> waiter : waiters) {
+                waiter.complete(changed);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.inventorywizard;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * How SortEngine orders groups of similar stacks and lays them out
+ * Strategies are registered in SortStrategyRegistry and selected through a player's SortMode
+ */
+public interface SortStrategy {
+
+    /**
+     * Registry name, as used in config.yml
+     */
+    String getName();
+
+    /**
+     * Name shown to players
+     */
+    String getDisplayName();
+
+    /**
+     * Whether similar stacks are merged into full stacks
+     * When false, stacks are kept as they are and ordered largest first within their group
+     */
+    boolean mergesStacks();
+
+    /**
+     * Number of keys compared per group
+     */
+    int getKeyCount();
+
+    /**
+     * Whether every key depends only on the stack itself
+     * Stack-local strategies get the single-pass already-sorted check
+     */
+    boolean isStackLocal();
+
+    /**
+     * Fill one key column for a set of groups; groups are ordered by comparing columns in order,
+     * lower values first, with ties kept in order of first appearance
+     * @param key Key index (0 to getKeyCount() - 1)
+     * @param contents Inventory snapshot
+     * @param firstSlot Representative slot of each group
+     * @param totalAmount Total amount of each group
+     * @param count Number of groups
+     * @param hotbar Whether hotbar priorities apply
+     * @param out Column to fill
+     * @param offset Index of the first group in out
+     */
+    void extractKeys(int key, ItemStack[] contents, int[] firstSlot, int[] totalAmount, int count,
+                     boolean hotbar, long[] out, int offset);
+}
@@ -0,0 +1,173 @@
+package com.inventorywizard;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Registry of sort strategies and the SortMode each player-facing mode id maps to
+ * Lookups read an immutable snapshot, so sorting never locks; changes swap in a new snapshot
+ */
+public final class SortStrategyRegistry {
+
+    public static final String DEFAULT = "default";
+    public static final String ALPHABETICAL = "alphabetical";
+    public static final String STACK_BASED = "stack-based";
+
+    // Strategies registered from code (kept across config reloads)
+    private static final Map<String, SortStrategy> registered = new LinkedHashMap<>();
+
+    private static volatile Snapshot snapshot = buildSnapshot(Collections.emptyMap(), Collections.emptyMap());
+
+    private SortStrategyRegistry() {
+    }
+
+    /**
+     * Get the strategy a sort mode currently maps to
+     * @param mode The player's sort mode
+     * @return The strategy (never null)
+     */
+    public static SortStrategy forMode(PlayerSortPreferences.SortMode mode) {
+        return snapshot.byMode[mode.ordinal()];
+    }
+
+    /**
+     * Get a strategy by name
+     * @param name Registry name
+     * @return The strategy, or null if none is registered under that name
+     */
+    public static SortStrategy get(String name) {
+        return snapshot.strategies.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public static Collection<SortStrategy> getStrategies() {
+        return snapshot.strategies.values();
+    }
+
+    /**
+     * Register a strategy from code; it can then be mapped to a mode in config.yml or with assign
+     * @param strategy The strategy to register
+     */
+    public static synchronized void register(SortStrategy strategy) {
+        registered.put(strategy.getName().toLowerCase(Locale.ROOT), strategy);
+        Snapshot current = snapshot;
+        Map<String, SortStrategy> strategies = new LinkedHashMap<>(current.strategies);
+        strategies.put(strategy.getName().toLowerCase(Locale.ROOT), strategy);
+
+        // Modes mapped to a strategy of the same name pick up the replacement
+        SortStrategy[] byMode = current.byMode.clone();
+        for (int i = 0; i < byMode.length; i++) {
+            if (byMode[i].getName().equalsIgnoreCase(strategy.getName())) {
+                byMode[i] = strategy;
+            }
+        }
+        snapshot = new Snapshot(Collections.unmodifiableMap(strategies), byMode);
+    }
+
+    /**
+     * Map a sort mode onto a registered strategy
+     * @param mode The mode
+     * @param name Registry name of the strategy
+     * @throws IllegalArgumentException if no strategy has that name
+     */
+    public static synchronized void assign(PlayerSortPreferences.SortMode mode, String name) {
+        Snapshot current = snapshot;
+        SortStrategy strategy = current.strategies.get(name.toLowerCase(Locale.ROOT));
+        if (strategy == null) {
+            throw new IllegalArgumentException("Unknown sort strategy '" + name + "'");
+        }
+        SortStrategy[] byMode = current.byMode.clone();
+        byMode[mode.ordinal()] = strategy;
+        snapshot = new Snapshot(current.strategies, byMode);
+    }
+
+    /**
+     * Load strategies and mode mappings from config.yml
+     * Invalid entries are logged and skipped, leaving the built-ins in place
+     * @param config Root configuration
+     * @param logger Logger for problems in the configuration
+     */
+    public static synchronized void load(ConfigurationSection config, Logger logger) {
+        Map<String, SortStrategy> configured = new LinkedHashMap<>();
+        ConfigurationSection strategiesSection = config.getConfigurationSection("sort-strategies");
+        if (strategiesSection != null) {
+            for (String name : strategiesSection.getKeys(false)) {
+                ConfigurationSection section = strategiesSection.getConfigurationSection(name);
+                if (section == null) {
+                    continue;
+                }
+                try {
+                    List<String> keys = section.getStringList("keys");
+                    if (keys.isEmpty()) {
+                        throw new IllegalArgumentException("no keys listed");
+                    }
+                    configured.put(name.toLowerCase(Locale.ROOT), ComparatorChainStrategy.parse(
+                        name, section.getString("display-name", name), section.getBoolean("merge-stacks", true), keys));
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Ignoring sort strategy '" + name + "': " + e.getMessage());
+                }
+            }
+        }
+
+        Map<PlayerSortPreferences.SortMode, String> modeNames = new LinkedHashMap<>();
+        ConfigurationSection modesSection = config.getConfigurationSection("sort-modes");
+        if (modesSection != null) {
+            for (PlayerSortPreferences.SortMode mode : PlayerSortPreferences.SortMode.values()) {
+                String strategyName = modesSection.getString(configName(mode));
+                if (strategyName != null) {
+                    modeNames.put(mode, strategyName.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+
+        Snapshot loaded = buildSnapshot(configured, modeNames);
+        for (Map.Entry<PlayerSortPreferences.SortMode, String> entry : modeNames.entrySet()) {
+            if (!loaded.strategies.containsKey(entry.getValue())) {
+                logger.warning("Sort mode '" + configName(entry.getKey()) + "' maps to unknown strategy '"
+                    + entry.getValue() + "', using the built-in one");
+            }
+        }
+        snapshot = loaded;
+    }
+
+    /**
+     * Config key of a sort mode, e.g. "stack-based"
+     */
+    public static String configName(PlayerSortPreferences.SortMode mode) {
+        return mode.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    private static Snapshot buildSnapshot(Map<String, SortStrategy> configured,
+                                          Map<PlayerSortPreferences.SortMode, String> modeNames) {
+        Map<String, SortStrategy> strategies = new LinkedHashMap<>();
+        strategies.put(DEFAULT, ComparatorChainStrategy.parse(DEFAULT, "Default", true, List.of("category", "material")));
+        strategies.put(ALPHABETICAL, ComparatorChainStrategy.parse(ALPHABETICAL, "Alphabetical", true, List.of("material")));
+        strategies.put(STACK_BASED, ComparatorChainStrategy.parse(STACK_BASED, "Stack-based", false, List.of("material")));
+        strategies.putAll(registered);
+        strategies.putAll(configured);
+
+        PlayerSortPreferences.SortMode[] modes = PlayerSortPreferences.SortMode.values();
+        SortStrategy[] byMode = new SortStrategy[modes.length];
+        for (PlayerSortPreferences.SortMode mode : modes) {
+            SortStrategy strategy = strategies.get(modeNames.getOrDefault(mode, configName(mode)));
+            byMode[mode.ordinal()] = strategy != null ? strategy : strategies.get(configName(mode));
+        }
+        return new Snapshot(Collections.unmodifiableMap(strategies), byMode);
+    }
+
+    private static final class Snapshot {
+        private final Map<String, SortStrategy> strategies;
+        private final SortStrategy[] byMode;
+
+        private Snapshot(Map<String, SortStrategy> strategies, SortStrategy[] byMode) {
+            this.strategies = strategies;
+            this.byMode = byMode;
+        }
+    }
+}
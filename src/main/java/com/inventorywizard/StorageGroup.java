@@ -0,0 +1,103 @@
+package com.inventorywizard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A named set of containers a player has linked together (/iwiz group)
+ * Sorting a group pools the contents of every member and lays them out across the members in order
+ */
+public final class StorageGroup {
+
+    private final String name;
+    // In link order; the sorted layout fills members in this order
+    private final List<Member> members = new ArrayList<>();
+
+    public StorageGroup(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Member> getMembers() {
+        return Collections.unmodifiableList(members);
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    public boolean contains(Member member) {
+        return members.contains(member);
+    }
+
+    void add(Member member) {
+        if (!members.contains(member)) {
+            members.add(member);
+        }
+    }
+
+    boolean remove(Member member) {
+        return members.remove(member);
+    }
+
+    /**
+     * Block position of a linked container
+     * Worlds are stored by UUID so a renamed or unloaded world doesn't break the link
+     */
+    public static final class Member {
+        private final UUID worldId;
+        private final int x;
+        private final int y;
+        private final int z;
+
+        public Member(UUID worldId, int x, int y, int z) {
+            this.worldId = worldId;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        public UUID getWorldId() {
+            return worldId;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getZ() {
+            return z;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Member)) {
+                return false;
+            }
+            Member member = (Member) other;
+            return x == member.x && y == member.y && z == member.z && worldId.equals(member.worldId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * worldId.hashCode() + x) + y) + z;
+        }
+
+        @Override
+        public String toString() {
+            return x + ", " + y + ", " + z;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.inventorywizard;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.inventory.Inventory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Storage groups: containers a player links together and sorts as one (/iwiz group)
+ * Containers are linked by opening them after /iwiz group link, so only containers the player can
+ * actually open (as far as protection plugins are concerned) ever end up in a group
+ * A container that is broken or blown up is unlinked from every group, so a container placed there later
+ * never inherits the link
+ */
+public class StorageGroupManager implements Listener {
+
+    // Defaults used when config.yml doesn't override them
+    private static final int DEFAULT_MAX_GROUPS = 10;
+    private static final int DEFAULT_MAX_CONTAINERS = 32;
+    private static final double DEFAULT_TICK_BUDGET_MS = 2.0;
+    // How long /iwiz group link and unlink wait for the player to open a container
+    private static final long PENDING_ACTION_TIMEOUT_MS = 30000L;
+    // Blocks that can be group members (see StorageGroupSortJob.SORTABLE_TYPES)
+    private static final Set<Material> MEMBER_BLOCKS = EnumSet.of(Material.CHEST, Material.TRAPPED_CHEST, Material.BARREL);
+
+    private final InventoryWizardPlugin plugin;
+    private final boolean enabled;
+    private final int maxGroups;
+    private final int maxContainers;
+    private final long tickBudgetNanos;
+
+    // Groups of online players, loaded on first use and evicted on quit (main thread only)
+    private final Map<UUID, Map<String, StorageGroup>> groups = new HashMap<>();
+    private final Map<UUID, PendingAction> pendingActions = new HashMap<>();
+    private final Map<UUID, StorageGroupSortJob> jobs = new HashMap<>();
+
+    public StorageGroupManager(InventoryWizardPlugin plugin) {
+        this.plugin = plugin;
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("storage-groups");
+        if (section == null) {
+            this.enabled = true;
+            this.maxGroups = DEFAULT_MAX_GROUPS;
+            this.maxContainers = DEFAULT_MAX_CONTAINERS;
+            this.tickBudgetNanos = (long) (DEFAULT_TICK_BUDGET_MS * 1_000_000L);
+        } else {
+            this.enabled = section.getBoolean("enabled", true);
+            this.maxGroups = Math.max(1, section.getInt("max-groups", DEFAULT_MAX_GROUPS));
+            this.maxContainers = Math.max(2, section.getInt("max-containers", DEFAULT_MAX_CONTAINERS));
+            this.tickBudgetNanos = (long) (Math.max(0.1, section.getDouble("tick-budget-ms", DEFAULT_TICK_BUDGET_MS)) * 1_000_000L);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Run an action with a player's groups on the main thread, loading them first if needed
+     * @param player The player
+     * @param action Action to run with the groups keyed by name
+     */
+    public void withGroups(Player player, Consumer<Map<String, StorageGroup>> action) {
+        UUID playerId = player.getUniqueId();
+        Map<String, StorageGroup> cached = groups.get(playerId);
+        if (cached != null) {
+            action.accept(cached);
+            return;
+        }
+
+        AsyncPreferenceStore store = plugin.getPlayerPreferences().getStore();
+        if (store == null) {
+            Map<String, StorageGroup> empty = new LinkedHashMap<>();
+            groups.put(playerId, empty);
+            action.accept(empty);
+            return;
+        }
+        store.deliverOnMainThread(store.getStorageGroups(playerId), loaded -> {
+            if (!player.isOnline()) {
+                return;
+            }
+            // Another load may have finished first
+            Map<String, StorageGroup> current = groups.computeIfAbsent(playerId,
+                id -> loaded != null ? loaded : new LinkedHashMap<>());
+            action.accept(current);
+        });
+    }
+
+    /**
+     * Link the next container the player opens to a group
+     * @param player The player
+     * @param groupName Validated group name
+     */
+    public void armLink(Player player, String groupName) {
+        pendingActions.put(player.getUniqueId(), new PendingAction(groupName));
+    }
+
+    /**
+     * Unlink the next container the player opens from whichever group holds it
+     * @param player The player
+     */
+    public void armUnlink(Player player) {
+        pendingActions.put(player.getUniqueId(), new PendingAction(null));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryOpen(InventoryOpenEvent event) {
+        if (!(event.getPlayer() instanceof Player)) {
+            return;
+        }
+        Player player = (Player) event.getPlayer();
+        PendingAction pending = pendingActions.remove(player.getUniqueId());
+        if (pending == null || System.currentTimeMillis() - pending.createdAt > PENDING_ACTION_TIMEOUT_MS) {
+            return;
+        }
+
+        Inventory inventory = event.getInventory();
+        Location location = inventory.getLocation();
+        if (location == null || location.getWorld() == null
+            || !StorageGroupSortJob.SORTABLE_TYPES.contains(inventory.getType())) {
+            player.sendMessage("§c🧙✨ Only chests and barrels can be part of a storage group.");
+            return;
+        }
+
+        // Double chests report their center, which always falls inside one of the two halves
+        StorageGroup.Member member = new StorageGroup.Member(location.getWorld().getUID(),
+            location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        withGroups(player, owned -> {
+            if (pending.groupName != null) {
+                link(player, owned, pending.groupName, member);
+            } else {
+                unlink(player, owned, member);
+            }
+        });
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        unlinkRemoved(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        for (Block block : event.blockList()) {
+            unlinkRemoved(block);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        for (Block block : event.blockList()) {
+            unlinkRemoved(block);
+        }
+    }
+
+    /**
+     * Delete one of a player's groups
+     * @param player The player
+     * @param groupName Validated group name
+     */
+    public void delete(Player player, String groupName) {
+        withGroups(player, owned -> {
+            if (owned.remove(groupName) == null) {
+                player.sendMessage("§c🧙✨ You have no storage group named §f" + groupName + "§c.");
+                return;
+            }
+            AsyncPreferenceStore store = plugin.getPlayerPreferences().getStore();
+            if (store != null) {
+                store.deleteStorageGroup(player.getUniqueId(), groupName);
+            }
+            player.sendMessage("§e🔗 Storage group §f" + groupName + " §edeleted.");
+        });
+    }
+
+    /**
+     * Start sorting one of a player's groups
+     * @param player The player
+     * @param group The group
+     * @param mode Sort mode to use
+     */
+    public void startSort(Player player, StorageGroup group, PlayerSortPreferences.SortMode mode) {
+        UUID playerId = player.getUniqueId();
+        StorageGroupSortJob job = new StorageGroupSortJob(plugin, player, group, mode, tickBudgetNanos,
+            () -> jobs.remove(playerId));
+        jobs.put(playerId, job);
+        job.start();
+    }
+
+    /**
+     * Get the names of a player's groups if they are already loaded (for tab completion)
+     * @param player The player
+     * @return Group names, empty if not loaded yet
+     */
+    public List<String> getGroupNames(Player player) {
+        Map<String, StorageGroup> owned = groups.get(player.getUniqueId());
+        return owned != null ? new ArrayList<>(owned.keySet()) : Collections.emptyList();
+    }
+
+    public boolean hasJob(Player player) {
+        return jobs.containsKey(player.getUniqueId());
+    }
+
+    /**
+     * Cancel a player's running group sort
+     * @param player The player
+     * @return true if a sort was running
+     */
+    public boolean cancel(Player player) {
+        StorageGroupSortJob job = jobs.get(player.getUniqueId());
+        if (job == null) {
+            return false;
+        }
+        job.cancel("§e⏹ Storage group sort cancelled.");
+        return true;
+    }
+
+    /**
+     * Drop everything held for a player who left
+     * @param playerId The player's UUID
+     */
+    public void forget(UUID playerId) {
+        StorageGroupSortJob job = jobs.get(playerId);
+        if (job != null) {
+            job.cancel(null);
+        }
+        pendingActions.remove(playerId);
+        groups.remove(playerId);
+    }
+
+    public void shutdown() {
+        for (StorageGroupSortJob job : new ArrayList<>(jobs.values())) {
+            job.cancel(null);
+        }
+        jobs.clear();
+        pendingActions.clear();
+        groups.clear();
+    }
+
+    private void link(Player player, Map<String, StorageGroup> owned, String groupName, StorageGroup.Member member) {
+        StorageGroup group = owned.get(groupName);
+        if (group != null && group.contains(member)) {
+            player.sendMessage("§7That container is already in §f" + groupName + "§7.");
+            return;
+        }
+        if (group == null && owned.size() >= maxGroups) {
+            player.sendMessage("§c🧙✨ You can have at most " + maxGroups + " storage groups.");
+            return;
+        }
+        if (group != null && group.size() >= maxContainers) {
+            player.sendMessage("§c🧙✨ A storage group can hold at most " + maxContainers + " containers.");
+            return;
+        }
+
+        // A container belongs to at most one of the player's groups
+        removeMember(owned, member);
+        group = owned.computeIfAbsent(groupName, StorageGroup::new);
+        group.add(member);
+        AsyncPreferenceStore store = plugin.getPlayerPreferences().getStore();
+        if (store != null) {
+            store.linkStorageContainer(player.getUniqueId(), groupName, member);
+        }
+        player.sendMessage("§a🔗 Container linked to §f" + groupName + " §7(" + group.size() + " containers)");
+    }
+
+    private void unlink(Player player, Map<String, StorageGroup> owned, StorageGroup.Member member) {
+        String groupName = removeMember(owned, member);
+        if (groupName == null) {
+            player.sendMessage("§7That container isn't in any of your storage groups.");
+            return;
+        }
+        AsyncPreferenceStore store = plugin.getPlayerPreferences().getStore();
+        if (store != null) {
+            store.unlinkStorageContainer(player.getUniqueId(), member);
+        }
+        player.sendMessage("§e🔗 Container unlinked from §f" + groupName + "§e.");
+    }
+
+    // Drops a removed container from the cached groups of online players and from every owner's groups in the database
+    private void unlinkRemoved(Block block) {
+        if (!enabled || !MEMBER_BLOCKS.contains(block.getType())) {
+            return;
+        }
+        StorageGroup.Member member = new StorageGroup.Member(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
+        for (Map<String, StorageGroup> owned : groups.values()) {
+            removeMember(owned, member);
+        }
+        AsyncPreferenceStore store = plugin.getPlayerPreferences().getStore();
+        if (store != null) {
+            store.unlinkStorageContainerEverywhere(member);
+        }
+    }
+
+    // Returns the name of the group the member was removed from, dropping the group if it became empty
+    private static String removeMember(Map<String, StorageGroup> owned, StorageGroup.Member member) {
+        Iterator<StorageGroup> iterator = owned.values().iterator();
+        while (iterator.hasNext()) {
+            StorageGroup group = iterator.next();
+            if (group.remove(member)) {
+                if (group.size() == 0) {
+                    iterator.remove();
+                }
+                return group.getName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A link or unlink waiting for the player to open a container
+     */
+    private static final class PendingAction {
+        // null for unlink
+        private final String groupName;
+        private final long createdAt = System.currentTimeMillis();
+
+        private PendingAction(String groupName) {
+            this.groupName = groupName;
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.inventorywizard;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Container;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
+
+/**
+ * Sorts a storage group as if its members were one big container
+ * Members are snapshotted a few per tick within the tick budget, all snapshots are merged and ordered in a
+ * single pass (on the worker pool when async-sort is enabled), and the layout is then written back in one
+ * tick, only after checking that no member changed since its snapshot, so items can't be duplicated or lost
+ * Access is checked again for every member at snapshot and at apply, so a container someone else placed where a
+ * linked one used to be is never sorted into
+ * Before the first snapshot every member is charged to the player's rate limit by its estimated cost, like the
+ * containers of an area sort; the job waits for the player's sorts to refill when it can't afford the next one
+ */
+public class StorageGroupSortJob {
+
+    // Shulker boxes can be picked up with their contents, so only fixed storage is pooled
+    static final Set<InventoryType> SORTABLE_TYPES = EnumSet.of(InventoryType.CHEST, InventoryType.BARREL);
+    // Times the job snapshots again after a member changed before giving up
+    private static final int MAX_ATTEMPTS = 3;
+    // How often a job waiting for sorts checks whether the player's sorts have refilled
+    private static final long REFILL_CHECK_INTERVAL_TICKS = 20L;
+
+    private final InventoryWizardPlugin plugin;
+    private final Player player;
+    private final StorageGroup group;
+    private final PlayerSortPreferences.SortMode mode;
+    private final SortStrategy strategy;
+    private final boolean allowPartialStacks;
+    private final long tickBudgetNanos;
+    private final Runnable onFinish;
+    private final AsyncSortService asyncSorts;
+
+    private final Deque<StorageGroup.Member> membersToCharge = new ArrayDeque<>();
+    // Containers paid for; kept across retries so a conflict never charges a container twice
+    private final Set<Object> chargedContainers = new HashSet<>();
+    private final Deque<StorageGroup.Member> membersToSnapshot = new ArrayDeque<>();
+    // Members that resolved to a container, in layout order, with their detached snapshots
+    private final List<StorageGroup.Member> resolved = new ArrayList<>();
+    private final List<ItemStack[]> snapshots = new ArrayList<>();
+    // Containers already snapshotted (both halves of a double chest resolve to the same one)
+    private final Set<Object> seenContainers = new HashSet<>();
+
+    private BukkitTask task;
+    private CompletableFuture<ItemStack[]> layoutFuture;
+    private int pooledSlots;
+    private int pooledItems;
+    private int missing;
+    private int denied;
+    private int attempts;
+    private long mainThreadNanos;
+    // Part of the token taken when the sort started that hasn't been spent on containers yet
+    private double prepaidSorts = 1.0;
+    private long ticksRun;
+    private long resumeAtTick;
+    private boolean toldOutOfSorts;
+    private boolean finished;
+
+    StorageGroupSortJob(InventoryWizardPlugin plugin, Player player, StorageGroup group,
+                        PlayerSortPreferences.SortMode mode, long tickBudgetNanos, Runnable onFinish) {
+        this.plugin = plugin;
+        this.player = player;
+        this.group = group;
+        this.mode = mode;
+        // Resolved once so a reload can't change the strategy between snapshot and apply
+        this.strategy = SortStrategyRegistry.forMode(mode);
+        this.allowPartialStacks = plugin.getConfig().getBoolean("features.allow-partial-stacks-chest", true);
+        this.tickBudgetNanos = tickBudgetNanos;
+        this.onFinish = onFinish;
+        this.asyncSorts = plugin.getAsyncSortService();
+    }
+
+    void start() {
+        membersToCharge.addAll(group.getMembers());
+        reset();
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    /**
+     * Stop the job before it finishes
+     * @param reason Message shown to the player (null to stay silent)
+     */
+    public void cancel(String reason) {
+        if (finished) {
+            return;
+        }
+        finish();
+        if (reason != null && player.isOnline()) {
+            player.sendMessage(reason);
+        }
+    }
+
+    private void tick() {
+        if (!player.isOnline()) {
+            cancel(null);
+            return;
+        }
+
+        // Paused while the server is lagging badly
+        if (plugin.getServerLoadMonitor().isDeferringBackgroundSorts()) {
+            return;
+        }
+
+        // Shares the server-wide sort budget with player sorts
+        SortRequestQueue scheduler = plugin.getSortRequestQueue();
+        long tickStart = System.nanoTime();
+        ticksRun++;
+        try {
+            run(tickStart + scheduler.grantBackgroundSlice(tickBudgetNanos));
+        } finally {
+            long elapsed = System.nanoTime() - tickStart;
+            mainThreadNanos += elapsed;
+            scheduler.recordBackgroundWork(elapsed);
+        }
+    }
+
+    private void run(long deadline) {
+        while (!membersToCharge.isEmpty() && ticksRun >= resumeAtTick && System.nanoTime() < deadline) {
+            if (!charge(membersToCharge.peek())) {
+                resumeAtTick = ticksRun + REFILL_CHECK_INTERVAL_TICKS;
+                if (!toldOutOfSorts) {
+                    toldOutOfSorts = true;
+                    player.sendMessage("§e⏳ You're out of sorts for now; the group sort continues as they refill."
+                        + " Use §f/iwiz cancel §eto stop it.");
+                }
+                return;
+            }
+            membersToCharge.poll();
+        }
+        if (!membersToCharge.isEmpty()) {
+            return;
+        }
+
+        while (!membersToSnapshot.isEmpty() && System.nanoTime() < deadline) {
+            snapshot(membersToSnapshot.poll());
+        }
+        if (!membersToSnapshot.isEmpty()) {
+            return;
+        }
+
+        if (layoutFuture == null) {
+            if (resolved.isEmpty()) {
+                finish();
+                player.sendMessage("§c🧙✨ None of the containers in §f" + group.getName() + " §care loaded.");
+                return;
+            }
+            // One pass over the pooled snapshots merges stacks across the whole group (null layout = already sorted)
+            ItemStack[] pooled = pool();
+            layoutFuture = asyncSorts.compute(() -> SortEngine.layoutFor(pooled, 0, pooled.length, strategy, false, allowPartialStacks));
+        }
+        if (layoutFuture.isDone()) {
+            apply();
+        }
+    }
+
+    private void snapshot(StorageGroup.Member member) {
+        Block block = loadedBlock(member);
+        Inventory inventory = block != null ? containerAt(block) : null;
+        if (inventory == null) {
+            missing++;
+            return;
+        }
+        if (!ContainerAccess.canOpen(plugin, player, block)) {
+            denied++;
+            return;
+        }
+        Object key = InventorySorter.containerKey(inventory);
+        // Loaded only after the charging pass, so it wasn't paid for
+        if (!chargedContainers.contains(key)) {
+            missing++;
+            return;
+        }
+        if (!seenContainers.add(key)) {
+            return;
+        }
+
+        // Detached copy, so the worker never reads stacks the server thread may be changing
+        ItemStack[] live = inventory.getContents();
+        ItemStack[] snapshot = new ItemStack[live.length];
+        for (int slot = 0; slot < live.length; slot++) {
+            snapshot[slot] = SortEngine.isEmpty(live[slot]) ? null : live[slot].clone();
+        }
+        resolved.add(member);
+        snapshots.add(snapshot);
+    }
+
+    /**
+     * Charge a member to the player's rate limit, spending what is left of the starting token first
+     * Members that aren't loaded, can't be opened or were already paid for through the other half of a
+     * double chest cost nothing; the snapshot pass skips or merges them
+     * @return false if the player can't afford it
+     */
+    private boolean charge(StorageGroup.Member member) {
+        Block block = loadedBlock(member);
+        Inventory inventory = block != null ? containerAt(block) : null;
+        if (inventory == null || chargedContainers.contains(InventorySorter.containerKey(inventory))
+                || !ContainerAccess.canOpen(plugin, player, block)) {
+            return true;
+        }
+
+        double cost = plugin.getSortRequestQueue().estimateSortEquivalents(SortMetrics.Operation.CHEST, inventory.getSize());
+        if (prepaidSorts >= cost) {
+            prepaidSorts -= cost;
+        } else if (plugin.getRateLimiter().tryCharge(player.getUniqueId(), cost - prepaidSorts)) {
+            prepaidSorts = 0;
+        } else {
+            return false;
+        }
+        chargedContainers.add(InventorySorter.containerKey(inventory));
+        return true;
+    }
+
+    private ItemStack[] pool() {
+        pooledSlots = 0;
+        for (ItemStack[] snapshot : snapshots) {
+            pooledSlots += snapshot.length;
+        }
+
+        ItemStack[] pooled = new ItemStack[pooledSlots];
+        int offset = 0;
+        pooledItems = 0;
+        for (ItemStack[] snapshot : snapshots) {
+            System.arraycopy(snapshot, 0, pooled, offset, snapshot.length);
+            offset += snapshot.length;
+            for (ItemStack item : snapshot) {
+                if (item != null) {
+                    pooledItems += item.getAmount();
+                }
+            }
+        }
+        return pooled;
+    }
+
+    private void apply() {
+        ItemStack[] layout;
+        try {
+            layout = layoutFuture.join();
+        } catch (CompletionException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to sort storage group " + group.getName(), e.getCause());
+            cancel("§c🧙✨ " + ErrorHandler.getGeneralErrorMessage());
+            return;
+        }
+
+        // Version check across every member in this tick: if anything moved since its snapshot the layout is stale
+        List<Inventory> inventories = new ArrayList<>(resolved.size());
+        List<ItemStack[]> contents = new ArrayList<>(resolved.size());
+        for (int i = 0; i < resolved.size(); i++) {
+            Block block = loadedBlock(resolved.get(i));
+            Inventory inventory = block != null && ContainerAccess.canOpen(plugin, player, block) ? containerAt(block) : null;
+            ItemStack[] current = inventory != null ? inventory.getContents() : null;
+            if (current == null || !matches(current, snapshots.get(i))) {
+                retry();
+                return;
+            }
+            inventories.add(inventory);
+            contents.add(current);
+        }
+
+        int changed = 0;
+        int offset = 0;
+        for (int i = 0; i < inventories.size(); i++) {
+            ItemStack[] current = contents.get(i);
+            ItemStack[] slice = layout != null ? Arrays.copyOfRange(layout, offset, offset + current.length) : null;
+            slice = NestedContentSorter.apply(current, 0, current.length, slice, strategy, allowPartialStacks);
+            if (slice != null && InventorySorter.writeChangedSlots(inventories.get(i), current, slice, 0) > 0) {
+                changed++;
+            }
+            offset += current.length;
+        }
+
+        finish();
+        plugin.getSortMetrics().recordSort(SortMetrics.Operation.STORAGE_GROUP, mode, mainThreadNanos, pooledItems);
+        player.sendMessage("§a✨ Sorted storage group §f" + group.getName() + "§a: " + resolved.size() + " containers, "
+            + changed + " rearranged (" + mode.getDisplayName() + ")"
+            + (missing > 0 ? " §7(" + missing + " not loaded)" : "")
+            + (denied > 0 ? " §7(" + denied + " you can't open)" : ""));
+    }
+
+    private void retry() {
+        plugin.getSortMetrics().recordAsyncConflict();
+        attempts++;
+        if (attempts >= MAX_ATTEMPTS) {
+            cancel("§c🧙✨ Storage group §f" + group.getName() + " §ckept changing while it was sorted. Try again in a moment.");
+            return;
+        }
+        reset();
+    }
+
+    private void reset() {
+        membersToSnapshot.clear();
+        membersToSnapshot.addAll(group.getMembers());
+        resolved.clear();
+        snapshots.clear();
+        seenContainers.clear();
+        layoutFuture = null;
+        missing = 0;
+        denied = 0;
+    }
+
+    private Block loadedBlock(StorageGroup.Member member) {
+        World world = plugin.getServer().getWorld(member.getWorldId());
+        // Never load chunks just to sort them
+        if (world == null || !world.isChunkLoaded(member.getX() >> 4, member.getZ() >> 4)) {
+            return null;
+        }
+        return world.getBlockAt(member.getX(), member.getY(), member.getZ());
+    }
+
+    private static Inventory containerAt(Block block) {
+        BlockState state = block.getState(false);
+        if (!(state instanceof Container)) {
+            return null;
+        }
+        Inventory inventory = ((Container) state).getInventory();
+        return SORTABLE_TYPES.contains(inventory.getType()) ? inventory : null;
+    }
+
+    private static boolean matches(ItemStack[] current, ItemStack[] snapshot) {
+        if (current.length != snapshot.length) {
+            return false;
+        }
+        for (int slot = 0; slot < current.length; slot++) {
+            if (!SortEngine.isSameStack(current[slot], snapshot[slot])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void finish() {
+        finished = true;
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        membersToSnapshot.clear();
+        if (onFinish != null) {
+            onFinish.run();
+        }
+    }
+}
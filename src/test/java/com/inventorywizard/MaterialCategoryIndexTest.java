@@ -0,0 +1,226 @@
+package com.inventorywizard;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the precomputed tables against the string-matching classifiers they replaced, for every Material
+ */
+class MaterialCategoryIndexTest {
+
+    @BeforeAll
+    static void startServer() {
+        // isBlock() and isEdible() read the server's item and block registries
+        MockBukkit.mock();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void builtInTableMatchesOriginalClassifiers() {
+        MaterialCategoryIndex.initialize();
+        assertMatchesOriginal();
+    }
+
+    @Test
+    void configWithoutRulesMatchesOriginalClassifiers() {
+        MaterialCategoryIndex.initialize(new YamlConfiguration(), Logger.getLogger("MaterialCategoryIndexTest"));
+        assertMatchesOriginal();
+    }
+
+    @Test
+    void nameRanksMatchCaseInsensitiveNameOrder() {
+        MaterialCategoryIndex.initialize();
+        Material[] materials = Material.values();
+        for (int i = 1; i < materials.length; i++) {
+            Material a = materials[i - 1];
+            Material b = materials[i];
+            assertEquals(Integer.signum(a.name().compareToIgnoreCase(b.name())),
+                Integer.signum(Integer.compare(MaterialCategoryIndex.getNameRank(a), MaterialCategoryIndex.getNameRank(b))),
+                a + " vs " + b);
+        }
+    }
+
+    private static void assertMatchesOriginal() {
+        for (Material material : Material.values()) {
+            if (material.isLegacy()) {
+                // Legacy materials never appear on modern items and are not classified
+                assertEquals(MaterialCategoryIndex.INVENTORY_OTHER_PRIORITY, MaterialCategoryIndex.getInventoryPriority(material),
+                    material.name());
+                assertEquals(MaterialCategoryIndex.HOTBAR_OTHER_PRIORITY, MaterialCategoryIndex.getHotbarPriority(material),
+                    material.name());
+                continue;
+            }
+            assertEquals(OriginalClassifier.getMaterialPriority(material), MaterialCategoryIndex.getInventoryPriority(material),
+                "inventory priority of " + material.name());
+            assertEquals(OriginalClassifier.getHotbarPriority(material), MaterialCategoryIndex.getHotbarPriority(material),
+                "hotbar priority of " + material.name());
+        }
+    }
+
+    /**
+     * The classification from InventorySorter before the table existed, copied unchanged
+     */
+    private static final class OriginalClassifier {
+
+        // Hotbar-specific priority (optimized for PvP/survival)
+        static int getHotbarPriority(Material material) {
+            // 1. Weapons (highest priority)
+            if (isWeaponType(material)) return 100;
+
+            // 2. Tools
+            if (isToolType(material)) return 200;
+
+            // 3. Food
+            if (material.isEdible()) return 300;
+
+            // 4. Blocks (for building/bridging)
+            if (isQuickBuildBlock(material)) return 400;
+
+            // 5. Utility items
+            if (isUtilityItem(material)) return 500;
+
+            // 6. Everything else
+            return 999;
+        }
+
+        private static boolean isQuickBuildBlock(Material material) {
+            String name = material.name();
+            // Common blocks used for quick building/bridging
+            return name.contains("COBBLESTONE") || name.contains("DIRT") ||
+                   name.contains("STONE") || name.contains("PLANKS") ||
+                   name.contains("SAND") || name.contains("GRAVEL") ||
+                   name.contains("WOOL");
+        }
+
+        private static boolean isUtilityItem(Material material) {
+            String name = material.name();
+            return name.contains("ENDER_PEARL") || name.contains("WATER_BUCKET") ||
+                   name.contains("LAVA_BUCKET") || name.contains("BUCKET") ||
+                   name.contains("TORCH") || name.contains("FLINT_AND_STEEL") ||
+                   name.contains("COMPASS") || name.contains("MAP");
+        }
+
+        // Regular inventory priority (same as before)
+        static int getMaterialPriority(Material material) {
+            // 1. Building Blocks - Stone types
+            if (isStoneType(material)) return 100;
+
+            // 2. Building Blocks - Dirt/Earth types
+            if (isEarthType(material)) return 200;
+
+            // 3. Building Blocks - Wood types
+            if (isWoodType(material)) return 300;
+
+            // 4. Building Blocks - Ores and Metals
+            if (isOreType(material)) return 400;
+
+            // 5. Building Blocks - Other blocks
+            if (material.isBlock()) return 500;
+
+            // 6. Tools
+            if (isToolType(material)) return 600;
+
+            // 7. Weapons
+            if (isWeaponType(material)) return 700;
+
+            // 8. Armor
+            if (isArmorType(material)) return 800;
+
+            // 9. Food
+            if (material.isEdible()) return 900;
+
+            // 10. Redstone items
+            if (isRedstoneType(material)) return 1000;
+
+            // 11. Transportation
+            if (isTransportationType(material)) return 1100;
+
+            // 12. Decoration
+            if (isDecorationType(material)) return 1200;
+
+            // 13. Miscellaneous items
+            return 9999;
+        }
+
+        private static boolean isStoneType(Material material) {
+            String name = material.name();
+            return name.contains("STONE") || name.contains("GRANITE") || name.contains("DIORITE") ||
+                   name.contains("ANDESITE") || name.contains("COBBLESTONE") || name.contains("BLACKSTONE") ||
+                   name.contains("BASALT") || name.contains("TUFF") || name.contains("DEEPSLATE");
+        }
+
+        private static boolean isEarthType(Material material) {
+            String name = material.name();
+            return name.contains("DIRT") || name.contains("GRASS") || name.contains("SAND") ||
+                   name.contains("GRAVEL") || name.contains("CLAY") || name.contains("TERRACOTTA") ||
+                   name.contains("CONCRETE") || name.contains("NETHERRACK") || name.contains("SOUL_SAND") ||
+                   name.contains("SOUL_SOIL");
+        }
+
+        private static boolean isWoodType(Material material) {
+            String name = material.name();
+            return (name.contains("LOG") || name.contains("WOOD") || name.contains("PLANKS") ||
+                    name.contains("LEAVES") || name.contains("SAPLING")) && material.isBlock();
+        }
+
+        private static boolean isOreType(Material material) {
+            String name = material.name();
+            return name.contains("_ORE") || (name.contains("_BLOCK") &&
+                   (name.contains("IRON") || name.contains("GOLD") || name.contains("DIAMOND") ||
+                    name.contains("EMERALD") || name.contains("COAL") || name.contains("COPPER") ||
+                    name.contains("REDSTONE") || name.contains("LAPIS") || name.contains("NETHERITE")));
+        }
+
+        private static boolean isToolType(Material material) {
+            String name = material.name();
+            return name.contains("PICKAXE") || name.contains("AXE") || name.contains("SHOVEL") ||
+                   name.contains("HOE") || name.contains("SHEARS") || name.contains("FLINT_AND_STEEL") ||
+                   name.contains("FISHING_ROD") || name.contains("COMPASS") || name.contains("CLOCK");
+        }
+
+        private static boolean isWeaponType(Material material) {
+            String name = material.name();
+            return name.contains("SWORD") || name.contains("BOW") || name.contains("CROSSBOW") ||
+                   name.contains("TRIDENT") || name.contains("ARROW");
+        }
+
+        private static boolean isArmorType(Material material) {
+            String name = material.name();
+            return name.contains("HELMET") || name.contains("CHESTPLATE") || name.contains("LEGGINGS") ||
+                   name.contains("BOOTS") || name.contains("SHIELD") || name.contains("ELYTRA");
+        }
+
+        private static boolean isRedstoneType(Material material) {
+            String name = material.name();
+            return name.contains("REDSTONE") || name.contains("REPEATER") || name.contains("COMPARATOR") ||
+                   name.contains("PISTON") || name.contains("STICKY_PISTON") || name.contains("DISPENSER") ||
+                   name.contains("DROPPER") || name.contains("HOPPER") || name.contains("PRESSURE_PLATE") ||
+                   name.contains("BUTTON") || name.contains("LEVER") || (name.contains("DOOR") && material.isBlock());
+        }
+
+        private static boolean isTransportationType(Material material) {
+            String name = material.name();
+            return name.contains("MINECART") || name.contains("BOAT") || name.contains("SADDLE");
+        }
+
+        private static boolean isDecorationType(Material material) {
+            String name = material.name();
+            return name.contains("CARPET") || name.contains("BANNER") || name.contains("PAINTING") ||
+                   name.contains("ITEM_FRAME") || name.contains("FLOWER_POT") || name.contains("FLOWER") ||
+                   name.contains("TULIP") || name.contains("TORCH") || name.contains("LANTERN") ||
+                   name.contains("CANDLE") || name.contains("HEAD") || name.contains("SKULL");
+        }
+    }
+}
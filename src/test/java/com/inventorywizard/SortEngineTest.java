@@ -0,0 +1,377 @@
+package com.inventorywizard;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares SortEngine layouts with the ArrayList/HashMap sorter it replaced, on fixed inventories,
+ * for every built-in mode, the hotbar and main inventory ranges and both partial stack settings
+ * Fixtures hold at most one variant per material, since ties between variants were in HashMap order before
+ */
+class SortEngineTest {
+
+    private static final int HOTBAR_END = 9;
+    private static final int MAIN_END = 36;
+
+    @BeforeAll
+    static void startServer() {
+        // ItemStacks and Material.isBlock()/isEdible() need a server
+        MockBukkit.mock();
+        MaterialCategoryIndex.initialize();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void chestLayoutsMatchOriginalSorter() {
+        ItemStack[] chest = chestContents();
+        for (PlayerSortPreferences.SortMode mode : PlayerSortPreferences.SortMode.values()) {
+            for (boolean allowPartialStacks : new boolean[] {true, false}) {
+                assertMatchesOriginal(chest, 0, chest.length, mode, false, allowPartialStacks);
+            }
+        }
+    }
+
+    @Test
+    void mainInventoryLayoutsMatchOriginalSorter() {
+        ItemStack[] player = playerContents();
+        for (PlayerSortPreferences.SortMode mode : PlayerSortPreferences.SortMode.values()) {
+            for (boolean allowPartialStacks : new boolean[] {true, false}) {
+                assertMatchesOriginal(player, HOTBAR_END, MAIN_END, mode, false, allowPartialStacks);
+            }
+        }
+    }
+
+    @Test
+    void hotbarLayoutsMatchOriginalSorter() {
+        ItemStack[] player = playerContents();
+        for (PlayerSortPreferences.SortMode mode : PlayerSortPreferences.SortMode.values()) {
+            for (boolean allowPartialStacks : new boolean[] {true, false}) {
+                assertMatchesOriginal(player, 0, HOTBAR_END, mode, true, allowPartialStacks);
+            }
+        }
+    }
+
+    @Test
+    void disallowedPartialStacksAreKeptAfterFullStacks() {
+        ItemStack[] chest = chestContents();
+        SortStrategy strategy = SortStrategyRegistry.forMode(PlayerSortPreferences.SortMode.DEFAULT);
+        ItemStack[] layout = SortEngine.computeLayout(chest, 0, chest.length, strategy, false, false);
+
+        // The old sorter lost each group's remainder, even the last sword of a pair; the new engine keeps everything
+        Map<Material, Integer> before = totals(slice(chest, 0, chest.length));
+        Map<Material, Integer> original = totals(OriginalSorter.sort(slice(chest, 0, chest.length),
+            PlayerSortPreferences.SortMode.DEFAULT, false, false));
+        assertEquals(128, original.get(Material.STONE));
+        assertEquals(1, original.get(Material.DIAMOND_SWORD));
+        assertEquals(before, totals(layout));
+
+        boolean partialSeen = false;
+        for (ItemStack stack : layout) {
+            if (stack == null) {
+                continue;
+            }
+            boolean partial = stack.getAmount() < stack.getMaxStackSize();
+            // No full stack may follow a partial one
+            assertTrue(partial || !partialSeen, "full stack of " + stack.getType() + " after a partial stack");
+            partialSeen |= partial;
+        }
+        assertTrue(partialSeen);
+    }
+
+    @Test
+    void sortedLayoutsAreReportedUnchanged() {
+        ItemStack[] chest = chestContents();
+        for (PlayerSortPreferences.SortMode mode : PlayerSortPreferences.SortMode.values()) {
+            SortStrategy strategy = SortStrategyRegistry.forMode(mode);
+            for (boolean allowPartialStacks : new boolean[] {true, false}) {
+                String context = mode + " partial=" + allowPartialStacks;
+                ItemStack[] once = SortEngine.layoutFor(chest, 0, chest.length, strategy, false, allowPartialStacks);
+                assertNotNull(once, context);
+                // Sorting the result again must take the no-op fast path, partial stacks at the end included
+                assertTrue(SortEngine.isSorted(once, 0, once.length, strategy, false, allowPartialStacks), context);
+                assertNull(SortEngine.layoutFor(once, 0, once.length, strategy, false, allowPartialStacks), context);
+            }
+        }
+    }
+
+    @Test
+    void displayNameKeyOrdersNamedAndUnnamedItemsByShownName() {
+        ItemStack[] chest = new ItemStack[9];
+        chest[0] = named(Material.DIAMOND_SWORD, 1, "Zeal");
+        chest[1] = new ItemStack(Material.STONE, 64);
+        chest[2] = named(Material.DIRT, 64, "Stone Wall");
+        chest[3] = named(Material.BREAD, 16, "§aApple");
+        chest[5] = new ItemStack(Material.COBBLESTONE, 64);
+        chest[7] = named(Material.ARROW, 32, "Stone");
+        chest[8] = new ItemStack(Material.ARROW, 32);
+        SortStrategy byName = new ComparatorChainStrategy("by-name", "By Name", true,
+            new SortKey[] {SortKey.DISPLAY_NAME}, new boolean[] {false});
+
+        ItemStack[] layout = SortEngine.computeLayout(chest, 0, chest.length, byName, false, true);
+
+        // Colors are ignored, unnamed items go by material name, and a shared prefix sorts the shorter name first;
+        // the renamed arrows ("stone") tie with plain stone and keep their slot order
+        Material[] expected = {Material.BREAD, Material.ARROW, Material.COBBLESTONE, Material.STONE, Material.ARROW,
+            Material.DIRT, Material.DIAMOND_SWORD};
+        for (int i = 0; i < expected.length; i++) {
+            assertNotNull(layout[i], "slot " + i);
+            assertEquals(expected[i], layout[i].getType(), "slot " + i);
+        }
+        assertTrue(layout[4].hasItemMeta(), "renamed arrows must not merge with plain ones");
+        assertNull(layout[expected.length]);
+        assertTrue(SortEngine.isSorted(layout, 0, layout.length, byName, false, true));
+
+        // On its own an item has nothing to be ranked against
+        assertEquals(0L, SortKey.DISPLAY_NAME.extract(chest[0], 1, false));
+    }
+
+    private static void assertMatchesOriginal(ItemStack[] contents, int from, int to, PlayerSortPreferences.SortMode mode,
+                                              boolean hotbar, boolean allowPartialStacks) {
+        String context = mode + (hotbar ? " hotbar" : " slots " + from + "-" + to) + " partial=" + allowPartialStacks;
+        SortStrategy strategy = SortStrategyRegistry.forMode(mode);
+        ItemStack[] layout = SortEngine.computeLayout(contents, from, to, strategy, hotbar, allowPartialStacks);
+
+        List<ItemStack> expected = OriginalSorter.sort(slice(contents, from, to), mode, hotbar, true);
+        if (!allowPartialStacks && strategy.mergesStacks()) {
+            // Documented change: the old sorter dropped every group's remainder; now the partial ones follow all full stacks
+            List<ItemStack> reordered = new ArrayList<>();
+            List<ItemStack> partials = new ArrayList<>();
+            for (ItemStack stack : expected) {
+                (stack.getAmount() < stack.getMaxStackSize() ? partials : reordered).add(stack);
+            }
+            reordered.addAll(partials);
+            expected = reordered;
+        }
+
+        assertEquals(to - from, layout.length, context);
+        for (int i = 0; i < layout.length; i++) {
+            if (i >= expected.size()) {
+                assertNull(layout[i], context + " slot " + i);
+                continue;
+            }
+            assertNotNull(layout[i], context + " slot " + i);
+            assertEquals(expected.get(i).getType(), layout[i].getType(), context + " slot " + i);
+            assertEquals(expected.get(i).getAmount(), layout[i].getAmount(), context + " slot " + i);
+        }
+        assertEquals(totals(slice(contents, from, to)), totals(layout), context);
+    }
+
+    private static ItemStack[] chestContents() {
+        ItemStack[] chest = new ItemStack[27];
+        chest[0] = new ItemStack(Material.STONE, 40);
+        chest[1] = new ItemStack(Material.DIRT, 64);
+        chest[3] = new ItemStack(Material.STONE, 30);
+        chest[4] = new ItemStack(Material.OAK_LOG, 12);
+        chest[5] = new ItemStack(Material.DIAMOND_SWORD, 1);
+        chest[7] = new ItemStack(Material.BREAD, 5);
+        chest[8] = new ItemStack(Material.STONE, 64);
+        chest[10] = new ItemStack(Material.IRON_INGOT, 20);
+        chest[11] = new ItemStack(Material.DIRT, 10);
+        chest[13] = new ItemStack(Material.ENDER_PEARL, 10);
+        chest[14] = new ItemStack(Material.ENDER_PEARL, 10);
+        chest[16] = new ItemStack(Material.ARROW, 33);
+        chest[17] = new ItemStack(Material.IRON_PICKAXE, 1);
+        chest[19] = new ItemStack(Material.COBBLESTONE, 64);
+        chest[20] = new ItemStack(Material.BREAD, 60);
+        chest[22] = new ItemStack(Material.REDSTONE, 7);
+        chest[23] = new ItemStack(Material.OAK_BOAT, 1);
+        chest[25] = new ItemStack(Material.WHITE_CARPET, 3);
+        chest[26] = new ItemStack(Material.DIAMOND_SWORD, 1);
+        return chest;
+    }
+
+    private static ItemStack[] playerContents() {
+        ItemStack[] player = new ItemStack[41];
+        // Hotbar
+        player[0] = new ItemStack(Material.COBBLESTONE, 32);
+        player[1] = new ItemStack(Material.DIAMOND_SWORD, 1);
+        player[2] = new ItemStack(Material.COOKED_BEEF, 12);
+        player[4] = new ItemStack(Material.WATER_BUCKET, 1);
+        player[5] = new ItemStack(Material.IRON_PICKAXE, 1);
+        player[6] = new ItemStack(Material.COBBLESTONE, 40);
+        player[7] = new ItemStack(Material.TORCH, 20);
+        player[8] = new ItemStack(Material.BOW, 1);
+        // Main inventory
+        player[9] = new ItemStack(Material.GRAVEL, 17);
+        player[11] = new ItemStack(Material.OAK_PLANKS, 64);
+        player[12] = new ItemStack(Material.GRAVEL, 50);
+        player[15] = new ItemStack(Material.IRON_HELMET, 1);
+        player[18] = new ItemStack(Material.COAL, 9);
+        player[20] = new ItemStack(Material.OAK_PLANKS, 3);
+        player[22] = new ItemStack(Material.EGG, 16);
+        player[23] = new ItemStack(Material.EGG, 5);
+        player[27] = new ItemStack(Material.RAIL, 24);
+        player[30] = new ItemStack(Material.STRING, 2);
+        player[35] = new ItemStack(Material.COAL, 60);
+        // Armor and offhand (never sorted)
+        player[38] = new ItemStack(Material.IRON_CHESTPLATE, 1);
+        player[40] = new ItemStack(Material.SHIELD, 1);
+        return player;
+    }
+
+    private static ItemStack named(Material material, int amount, String name) {
+        ItemStack item = new ItemStack(material, amount);
+        ItemMeta meta = item.getItemMeta();
+        meta.setDisplayName(name);
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    private static List<ItemStack> slice(ItemStack[] contents, int from, int to) {
+        List<ItemStack> items = new ArrayList<>();
+        for (int slot = from; slot < to; slot++) {
+            if (contents[slot] != null && contents[slot].getType() != Material.AIR) {
+                items.add(contents[slot].clone());
+            }
+        }
+        return items;
+    }
+
+    private static Map<Material, Integer> totals(ItemStack[] stacks) {
+        List<ItemStack> items = new ArrayList<>();
+        for (ItemStack stack : stacks) {
+            if (stack != null) {
+                items.add(stack);
+            }
+        }
+        return totals(items);
+    }
+
+    private static Map<Material, Integer> totals(List<ItemStack> stacks) {
+        Map<Material, Integer> totals = new EnumMap<>(Material.class);
+        for (ItemStack stack : stacks) {
+            totals.merge(stack.getType(), stack.getAmount(), Integer::sum);
+        }
+        return totals;
+    }
+
+    /**
+     * The sorting logic from InventorySorter before SortEngine existed
+     * Category priorities come from MaterialCategoryIndex's classifiers, which MaterialCategoryIndexTest
+     * checks against the original string-matching rules
+     */
+    private static final class OriginalSorter {
+
+        static List<ItemStack> sort(List<ItemStack> items, PlayerSortPreferences.SortMode mode, boolean hotbar,
+                                    boolean allowPartialStacks) {
+            switch (mode) {
+                case ALPHABETICAL:
+                    return sortAlphabetically(items, allowPartialStacks);
+                case STACK_BASED:
+                    return sortByStacks(items);
+                default:
+                    return stackAndSortByType(groupItems(items), hotbar, allowPartialStacks);
+            }
+        }
+
+        private static Map<String, List<ItemStack>> groupItems(List<ItemStack> items) {
+            Map<String, List<ItemStack>> grouped = new HashMap<>();
+            for (ItemStack item : items) {
+                grouped.computeIfAbsent(createItemKey(item), k -> new ArrayList<>()).add(item);
+            }
+            return grouped;
+        }
+
+        private static String createItemKey(ItemStack item) {
+            StringBuilder key = new StringBuilder();
+            key.append(item.getType().name());
+            if (item.hasItemMeta()) {
+                key.append("|").append(item.getItemMeta().hashCode());
+            }
+            return key.toString();
+        }
+
+        private static List<ItemStack> stackAndSortByType(Map<String, List<ItemStack>> groupedItems, boolean isHotbar,
+                                                          boolean allowPartialStacks) {
+            List<ItemStack> templates = templates(groupedItems);
+            templates.sort((item1, item2) -> {
+                int priority1 = isHotbar
+                    ? MaterialCategoryIndex.classifyHotbarPriority(item1.getType())
+                    : MaterialCategoryIndex.classifyInventoryPriority(item1.getType());
+                int priority2 = isHotbar
+                    ? MaterialCategoryIndex.classifyHotbarPriority(item2.getType())
+                    : MaterialCategoryIndex.classifyInventoryPriority(item2.getType());
+                if (priority1 != priority2) {
+                    return Integer.compare(priority1, priority2);
+                }
+                return item1.getType().name().compareToIgnoreCase(item2.getType().name());
+            });
+            return restack(templates, groupedItems, allowPartialStacks);
+        }
+
+        private static List<ItemStack> sortAlphabetically(List<ItemStack> items, boolean allowPartialStacks) {
+            Map<String, List<ItemStack>> groupedItems = groupItems(items);
+            List<ItemStack> templates = templates(groupedItems);
+            templates.sort((item1, item2) -> item1.getType().name().compareToIgnoreCase(item2.getType().name()));
+            return restack(templates, groupedItems, allowPartialStacks);
+        }
+
+        private static List<ItemStack> sortByStacks(List<ItemStack> items) {
+            Map<String, List<ItemStack>> groupedItems = groupItems(items);
+            List<ItemStack> templates = templates(groupedItems);
+            templates.sort((item1, item2) -> item1.getType().name().compareToIgnoreCase(item2.getType().name()));
+
+            List<ItemStack> result = new ArrayList<>();
+            for (ItemStack template : templates) {
+                List<ItemStack> sortedStacks = new ArrayList<>();
+                for (ItemStack item : groupedItems.get(createItemKey(template))) {
+                    sortedStacks.add(item.clone());
+                }
+                sortedStacks.sort((stack1, stack2) -> Integer.compare(stack2.getAmount(), stack1.getAmount()));
+                result.addAll(sortedStacks);
+            }
+            return result;
+        }
+
+        private static List<ItemStack> templates(Map<String, List<ItemStack>> groupedItems) {
+            List<ItemStack> templates = new ArrayList<>();
+            for (List<ItemStack> itemGroup : groupedItems.values()) {
+                if (!itemGroup.isEmpty()) {
+                    templates.add(itemGroup.get(0));
+                }
+            }
+            return templates;
+        }
+
+        private static List<ItemStack> restack(List<ItemStack> templates, Map<String, List<ItemStack>> groupedItems,
+                                               boolean allowPartialStacks) {
+            List<ItemStack> result = new ArrayList<>();
+            for (ItemStack template : templates) {
+                int totalAmount = groupedItems.get(createItemKey(template)).stream().mapToInt(ItemStack::getAmount).sum();
+                int maxStackSize = template.getMaxStackSize();
+                while (totalAmount > maxStackSize) {
+                    ItemStack fullStack = template.clone();
+                    fullStack.setAmount(maxStackSize);
+                    result.add(fullStack);
+                    totalAmount -= maxStackSize;
+                }
+                if (totalAmount > 0 && allowPartialStacks) {
+                    ItemStack remainingStack = template.clone();
+                    remainingStack.setAmount(totalAmount);
+                    result.add(remainingStack);
+                }
+            }
+            return result;
+        }
+    }
+}